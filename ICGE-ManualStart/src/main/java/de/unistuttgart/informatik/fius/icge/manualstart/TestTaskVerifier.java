@@ -35,7 +35,7 @@ public class TestTaskVerifier implements TaskVerifier, TaskInformation {
     private TaskVerificationStatus taskIsValid    = TaskVerificationStatus.UNDECIDED;
     private int                    minStepsToWalk = 4;
     private int                    maxStepsToWalk = 14;
-    private int                    stepsWalked    = 0;
+    private long                   stepsWalked    = 0;
 
     @Override
     public void attachToSimulation(Simulation sim) {
@@ -49,7 +49,7 @@ public class TestTaskVerifier implements TaskVerifier, TaskInformation {
             return;
         }
         // check the number of steps/moves all entity have taken together
-        this.stepsWalked = this.log.getActionsOfType(EntityMoveAction.class, true).size();
+        this.stepsWalked = this.log.countActionsOfType(EntityMoveAction.class, true);
 
         // as long as task is still achievable use UNDECIDED status
         if (this.stepsWalked < this.minStepsToWalk) {
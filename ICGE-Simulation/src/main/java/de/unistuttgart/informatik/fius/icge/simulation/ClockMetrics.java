@@ -0,0 +1,142 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation;
+
+import java.util.Map;
+
+
+/**
+ * Metrics about the ticks processed by a {@link SimulationClock}.
+ * <p>
+ * All durations are in nanoseconds. The metrics are also available via JMX as an MXBean of the type
+ * {@code SimulationClock}.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public interface ClockMetrics {
+
+    /**
+     * The number of buckets of {@link #getSimulationTickHistogram()}.
+     */
+    int HISTOGRAM_BUCKETS = 24;
+
+    /**
+     * @return the number of processed render ticks
+     */
+    long getRenderTickCount();
+
+    /**
+     * Get the number of render ticks which were skipped to catch up; see
+     * {@link SimulationClock.TickPolicy#SKIP_RENDER_TICKS}.
+     *
+     * @return the number of skipped render ticks
+     */
+    long getSkippedRenderTickCount();
+
+    /**
+     * @return the number of processed simulation ticks
+     */
+    long getSimulationTickCount();
+
+    /**
+     * @return the total time spent processing simulation ticks
+     */
+    long getTotalSimulationTickNanos();
+
+    /**
+     * @return the longest time spent processing a single simulation tick
+     */
+    long getMaxSimulationTickNanos();
+
+    /**
+     * Get a histogram of the time spent processing a simulation tick.
+     * <p>
+     * Bucket {@code 0} counts the ticks that took less than one microsecond, bucket {@code i} the ticks that took at
+     * least {@code 2^(i-1)} and less than {@code 2^i} microseconds. The last bucket also counts all longer ticks.
+     * </p>
+     *
+     * @return a copy of the {@value #HISTOGRAM_BUCKETS} buckets
+     */
+    long[] getSimulationTickHistogram();
+
+    /**
+     * @return the total time spent waiting for scheduled operations
+     */
+    long getOperationNanos();
+
+    /**
+     * @return the total time spent in tick listeners
+     */
+    long getTickListenerNanos();
+
+    /**
+     * @return the total time spent in post tick listeners
+     */
+    long getPostTickListenerNanos();
+
+    /**
+     * @return the total time spent in the animation tick listener
+     */
+    long getAnimationListenerNanos();
+
+    /**
+     * Get the time spent in each tick, post tick and animation listener.
+     * <p>
+     * The time is summed up by the class name of the listener. For a lambda this name starts with the name of the class
+     * declaring it. Listeners of the same class, for example the same lambda registered by several objects, are summed
+     * up together.
+     * </p>
+     *
+     * @return a copy of the total time spent in the listeners by the class name of the listener
+     */
+    Map<String, Long> getListenerNanos();
+
+    /**
+     * @return the number of operations which were due in the last simulation tick
+     */
+    long getLastDueOperationCount();
+
+    /**
+     * @return the highest number of operations which were due in a single simulation tick
+     */
+    long getMaxDueOperationCount();
+
+    /**
+     * @return the total number of operations which were released
+     */
+    long getTotalDueOperationCount();
+
+    /**
+     * Get the number of render ticks which took longer than the render tick period and therefore delayed the following
+     * tick. Only counted in {@link SimulationClock.ClockMode#REAL_TIME} mode.
+     *
+     * @return the number of missed periods
+     */
+    long getMissedPeriodCount();
+
+    /**
+     * Get the sum of the delays between the time a render tick should have started and the time it actually started.
+     * Only measured in {@link SimulationClock.ClockMode#REAL_TIME} mode.
+     *
+     * @return the total jitter
+     */
+    long getTotalJitterNanos();
+
+    /**
+     * @return the longest delay of a render tick; see {@link #getTotalJitterNanos()}
+     */
+    long getMaxJitterNanos();
+
+    /**
+     * Reset all metrics to zero.
+     */
+    void reset();
+}
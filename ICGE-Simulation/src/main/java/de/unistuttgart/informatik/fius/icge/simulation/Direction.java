@@ -30,13 +30,37 @@ package de.unistuttgart.informatik.fius.icge.simulation;
  */
 public enum Direction {
     /** the north direction; at the top of the screen ({@link Position#getY()} getting smaller) */
-    NORTH,
+    NORTH(0, -1),
     /** The east direction; at the right of the screen ({@link Position#getX()} getting bigger) */
-    EAST,
+    EAST(1, 0),
     /** The south direction; at the bottom of the screen ({@link Position#getY()} getting bigger) */
-    SOUTH,
+    SOUTH(0, 1),
     /** The west direction; at the left of the screen ({@link Position#getX()} getting smaller) */
-    WEST;
+    WEST(-1, 0);
+
+    private static final Direction[] VALUES = Direction.values();
+
+    private final int offsetX;
+    private final int offsetY;
+
+    Direction(final int offsetX, final int offsetY) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    /**
+     * @return the change of the x coordinate when going one step in this direction
+     */
+    public int getOffsetX() {
+        return this.offsetX;
+    }
+
+    /**
+     * @return the change of the y coordinate when going one step in this direction
+     */
+    public int getOffsetY() {
+        return this.offsetY;
+    }
 
     /**
      * Get the direction that is next in a clock wise rotation
@@ -44,6 +68,6 @@ public enum Direction {
      * @return The next direction
      */
     public Direction clockWiseNext() {
-        return Direction.values()[(this.ordinal() + 1) % 4];
+        return Direction.VALUES[(this.ordinal() + 1) % 4];
     }
 }
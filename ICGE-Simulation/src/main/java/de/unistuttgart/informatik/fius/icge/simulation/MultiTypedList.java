@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 
 /**
@@ -27,6 +28,15 @@ public class MultiTypedList<P> {
 
     private final HashMap<Class<? extends P>, List<P>> items = new HashMap<>();
 
+    /**
+     * The lists of all stored types assignable to a requested type, by requested type.
+     * <p>
+     * The lists of the stored types are never removed from {@link #items}, so this cache only needs to be cleared when
+     * a new type is stored for the first time.
+     * </p>
+     */
+    private final HashMap<Class<?>, List<List<P>>> matchingListsCache = new HashMap<>();
+
     /**
      * Get the relevant list for the given type.
      *
@@ -76,6 +86,7 @@ public class MultiTypedList<P> {
 
         final List<P> list = new ArrayList<>();
         this.items.put(type, list);
+        this.matchingListsCache.clear();
         return list;
     }
 
@@ -108,7 +119,11 @@ public class MultiTypedList<P> {
      * @return {@code true} if empty
      */
     public synchronized boolean isEmpty() {
-        return this.items.isEmpty();
+        // the lists for the stored types are kept when their last object is removed
+        for (final List<P> list : this.items.values()) {
+            if (!list.isEmpty()) return false;
+        }
+        return true;
     }
 
     /**
@@ -138,17 +153,92 @@ public class MultiTypedList<P> {
     public synchronized <T extends P> List<T> get(final Class<? extends T> type, final boolean includeSubclasses) {
         if (!includeSubclasses) return this.<T>getRelevantListGeneric(type).orElse(List.of());
 
-        final List<T> result = new ArrayList<>();
+        final List<List<P>> matchingLists = this.getMatchingLists(type);
+        int size = 0;
+        for (final List<P> list : matchingLists) {
+            size += list.size();
+        }
+        final List<P> result = new ArrayList<>(size);
+        for (final List<P> list : matchingLists) {
+            result.addAll(list);
+        }
+
+        //The matching lists only contain objects of the requested type or a subtype of it.
+        @SuppressWarnings("unchecked")
+        final List<T> typedResult = (List<T>) result;
+        return typedResult;
+    }
 
-        for (final Class<? extends P> storedType : this.items.keySet()) {
-            if (type.isAssignableFrom(storedType)) {
-                final Class<? extends T> storedTypeAsSubOfRequested = storedType.asSubclass(type);
-                final List<T> listForStoredType = this.<T>getRelevantListGeneric(storedTypeAsSubOfRequested).orElse(List.of());
-                result.addAll(listForStoredType);
+    /**
+     * Run the given action for all objects in this list of the given type without copying them into a new list.
+     * <p>
+     * The action is run while this list is locked, so it must not modify this list.
+     * </p>
+     *
+     * @param <T>
+     *     The generic type to pass the objects as
+     * @param type
+     *     The type of the objects to run the action for
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param action
+     *     The action to run for each matching object
+     */
+    public synchronized <T extends P> void forEach(
+            final Class<? extends T> type, final boolean includeSubclasses, final Consumer<? super T> action
+    ) {
+        if (!includeSubclasses) {
+            this.<T>getRelevantListGeneric(type).ifPresent(list -> list.forEach(action));
+            return;
+        }
+        for (final List<P> list : this.getMatchingLists(type)) {
+            for (final P o : list) {
+                //The matching lists only contain objects of the requested type or a subtype of it.
+                @SuppressWarnings("unchecked")
+                final T typedObject = (T) o;
+                action.accept(typedObject);
             }
         }
+    }
 
-        return result;
+    /**
+     * Count the objects in this list of the given type without copying them.
+     *
+     * @param type
+     *     The type of the objects to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return the number of matching objects
+     */
+    public synchronized int count(final Class<? extends P> type, final boolean includeSubclasses) {
+        if (!includeSubclasses) return this.getRelevantListGeneric(type).map(List::size).orElse(0);
+
+        int count = 0;
+        for (final List<P> list : this.getMatchingLists(type)) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the lists of all stored types, which are assignable to the given type.
+     *
+     * @param type
+     *     The requested type
+     * @return the (cached) lists of the matching stored types
+     */
+    private List<List<P>> getMatchingLists(final Class<?> type) {
+        List<List<P>> matchingLists = this.matchingListsCache.get(type);
+        if (matchingLists == null) {
+            matchingLists = new ArrayList<>();
+            for (final var entry : this.items.entrySet()) {
+                if (type.isAssignableFrom(entry.getKey())) {
+                    matchingLists.add(entry.getValue());
+                }
+            }
+            this.matchingListsCache.put(type, matchingLists);
+        }
+        return matchingLists;
     }
 
     /**
@@ -9,11 +9,17 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
 
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityMoveAction;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAction;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.EntityTypeRegistry;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.PersistableEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.SolidEntity;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityAlreadyOnFieldExcpetion;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityOnAnotherFieldException;
@@ -31,6 +37,19 @@ public interface Playfield {
      */
     Simulation getSimulation();
 
+    /**
+     * Get the latest snapshot of this playfield.
+     * <p>
+     * Unless the simulation is headless, a new snapshot is taken after every simulation tick. If the playfield is
+     * modified or redrawn without a tick, a new snapshot is taken when this method is called. Reading a snapshot never
+     * blocks entities that are modifying the playfield, so renderers, inspectors and task verifiers should use this
+     * when they need a consistent view of the whole playfield.
+     * </p>
+     *
+     * @return the latest snapshot
+     */
+    PlayfieldSnapshot getSnapshot();
+
     /**
      * Get a list of all entities on this playfield.
      *
@@ -64,6 +83,20 @@ public interface Playfield {
      */
     List<Entity> getEntitiesAt(final Position pos);
 
+    /**
+     * Get a list of all entities at the given coordinates on this playfield.
+     * <p>
+     * This behaves exactly like {@link #getEntitiesAt(Position)}, but does not require a {@link Position} object.
+     * </p>
+     *
+     * @param x
+     *     The x coordinate at which to get the entities
+     * @param y
+     *     The y coordinate at which to get the entities
+     * @return A list of all entities at that position
+     */
+    List<Entity> getEntitiesAt(int x, int y);
+
     /**
      * Get a list of all entities matching the given type at the given position on this playfield.
      *
@@ -81,6 +114,72 @@ public interface Playfield {
      */
     <T extends Entity> List<T> getEntitiesOfTypeAt(final Position pos, Class<? extends T> type, boolean includeSubclasses);
 
+    /**
+     * Get a list of all entities matching the given type at the given coordinates on this playfield.
+     * <p>
+     * This behaves exactly like {@link #getEntitiesOfTypeAt(Position, Class, boolean)}, but does not require a
+     * {@link Position} object.
+     * </p>
+     *
+     * @param <T>
+     *     The generic type to return the entities as
+     * @param x
+     *     The x coordinate at which to get the entities
+     * @param y
+     *     The y coordinate at which to get the entities
+     * @param type
+     *     The type of entity to get; must <b>not</b> be <b>null</b>
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return A list of all matching entities
+     * @throws IllegalArgumentException
+     *     if the given type is null
+     */
+    <T extends Entity> List<T> getEntitiesOfTypeAt(int x, int y, Class<? extends T> type, boolean includeSubclasses);
+
+    /**
+     * Get a list of all entities inside the given rectangular region of this playfield.
+     * <p>
+     * The corners are inclusive and can be given in any order. Only the populated parts of the playfield inside the
+     * region are visited, so the cost of this method depends on the size of the region and not on the size of the
+     * playfield.
+     * </p>
+     *
+     * @param x0
+     *     The x coordinate of the first corner of the region
+     * @param y0
+     *     The y coordinate of the first corner of the region
+     * @param x1
+     *     The x coordinate of the opposite corner of the region
+     * @param y1
+     *     The y coordinate of the opposite corner of the region
+     * @return A list of all entities in that region
+     */
+    List<Entity> getEntitiesInRegion(int x0, int y0, int x1, int y1);
+
+    /**
+     * Run the given action for all entities inside the given rectangular region of this playfield.
+     * <p>
+     * The corners are inclusive and can be given in any order. The entities are collected first and the action is run
+     * afterwards without the playfield being locked, so the action may query and modify the playfield. It is run for
+     * the entities which were in the region when they were collected.
+     * </p>
+     *
+     * @param x0
+     *     The x coordinate of the first corner of the region
+     * @param y0
+     *     The y coordinate of the first corner of the region
+     * @param x1
+     *     The x coordinate of the opposite corner of the region
+     * @param y1
+     *     The y coordinate of the opposite corner of the region
+     * @param action
+     *     The action to run for each entity; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given action is null
+     */
+    void forEachEntityInRegion(int x0, int y0, int x1, int y1, Consumer<? super Entity> action);
+
     /**
      * Add a given entity to this simulation at a given position on this playfield.
      *
@@ -145,6 +244,65 @@ public interface Playfield {
      */
     void removeEntity(Entity entity);
 
+    /**
+     * Apply all operations of the given batch to this playfield.
+     * <p>
+     * The operations are applied in the order they were recorded and behave like the corresponding calls to
+     * {@link #addEntity(Position, Entity)}, {@link #moveEntity(Entity, Position)} and {@link #removeEntity(Entity)}.
+     * All operations are checked before any of them is applied, so if this throws, the playfield was not modified. The
+     * added entities are initialized before the playfield is locked to apply all operations at once, so they may query
+     * the playfield while being initialized. The resulting actions are logged together, and the simulation tree and the
+     * drawing are updated only once.
+     * </p>
+     *
+     * @param batch
+     *     The batch to apply; must <b>not</b> be <b>null</b>
+     * @throws EntityAlreadyOnFieldExcpetion
+     *     if an entity of the batch would be added while it is already on this playfield
+     * @throws EntityOnAnotherFieldException
+     *     if an entity of the batch is already on another playfield
+     * @throws EntityNotOnFieldException
+     *     if an entity of the batch would be moved or removed while it is not on this playfield
+     * @throws IllegalArgumentException
+     *     if the given batch is null
+     */
+    void applyBatch(PlayfieldBatch batch);
+
+    /**
+     * Save all entities on this playfield to the given file in a compact binary format.
+     * <p>
+     * Every entity is stored by the name of its type in the {@link EntityTypeRegistry} of the simulation, its position
+     * and, if it is a {@link PersistableEntity}, its state. The entities are taken from a {@link #getSnapshot()
+     * snapshot}, so the saved state is consistent even if entities are moving.
+     * </p>
+     *
+     * @param file
+     *     The file to write to; will be overwritten; must <b>not</b> be <b>null</b>
+     * @throws IOException
+     *     if the file cannot be written
+     * @throws IllegalArgumentException
+     *     if the given file is null or the type of an entity is not registered
+     */
+    void saveState(Path file) throws IOException;
+
+    /**
+     * Replace all entities on this playfield with the entities saved in the given file.
+     * <p>
+     * The file is memory mapped and completely read before the playfield is modified. The new entities are created with
+     * the factories registered in the {@link EntityTypeRegistry} of the simulation. The entities on this playfield are
+     * removed and the new ones are added with a single {@link #applyBatch(PlayfieldBatch) batch}. The removed entities
+     * are determined when the batch is applied, so this also removes entities added while the new ones are initialized.
+     * </p>
+     *
+     * @param file
+     *     The file written by {@link #saveState(Path)}; must <b>not</b> be <b>null</b>
+     * @throws IOException
+     *     if the file cannot be read or its content is invalid
+     * @throws IllegalArgumentException
+     *     if the given file is null
+     */
+    void restoreState(Path file) throws IOException;
+
     /**
      * Get the position of the specified entity on the playfield.
      *
@@ -171,10 +329,45 @@ public interface Playfield {
 
     /**
      * Check whether a solid entity is at the given position.
+     * <p>
+     * This does not call {@link SolidEntity#isCurrentlySolid()}, but uses the value the playfield saw when the entity
+     * arrived at that position or last called {@link #notifySolidityChanged(SolidEntity)}.
+     * </p>
      *
      * @param pos
      *     The position to check
      * @return true if and only if a solid entity is at that position
      */
     boolean isSolidEntityAt(Position pos);
+
+    /**
+     * Check whether a solid entity is at the given coordinates.
+     * <p>
+     * This behaves exactly like {@link #isSolidEntityAt(Position)}, but does not require a {@link Position} object.
+     * </p>
+     *
+     * @param x
+     *     The x coordinate to check
+     * @param y
+     *     The y coordinate to check
+     * @return true if and only if a solid entity is at that position
+     */
+    boolean isSolidEntityAt(int x, int y);
+
+    /**
+     * Inform this playfield that the result of {@link SolidEntity#isCurrentlySolid()} of the given entity changed.
+     * <p>
+     * The playfield keeps track of the solid entities in each cell, so that {@link #isSolidEntityAt(int, int)} does not
+     * need to poll the entities. Entities that change their solidity while on the playfield must call this method after
+     * each change.
+     * </p>
+     *
+     * @param entity
+     *     The entity that changed its solidity; <b>must</b> be <b>on the field</b>; must <b>not</b> be <b>null</b>
+     * @throws EntityNotOnFieldException
+     *     if the given entity is not in this playfield
+     * @throws IllegalArgumentException
+     *     if the given entity is null
+     */
+    void notifySolidityChanged(SolidEntity entity);
 }
@@ -0,0 +1,159 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * A list of playfield modifications, which are applied together by {@link Playfield#applyBatch(PlayfieldBatch)}.
+ * <p>
+ * Recording the modifications does not touch the playfield. Applying a batch is much cheaper than performing the same
+ * modifications one by one, because the playfield is only locked once, the actions are logged together, the simulation
+ * tree is updated once and only one redraw is triggered. This is useful for setting up large levels.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class PlayfieldBatch {
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Record adding the given entity at the given position.
+     *
+     * @param pos
+     *     The position to add the entity at; must <b>not</b> be <b>null</b>
+     * @param entity
+     *     The entity to add; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given pos or entity is null
+     * @see Playfield#addEntity(Position, Entity)
+     */
+    public void addEntity(final Position pos, final Entity entity) {
+        if (pos == null) throw new IllegalArgumentException("The given pos is null.");
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        this.operations.add(new Operation(OperationType.ADD, entity, pos));
+    }
+
+    /**
+     * Record moving the given entity to the given position.
+     *
+     * @param entity
+     *     The entity to move; must <b>not</b> be <b>null</b>
+     * @param pos
+     *     The position to move the entity to; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given pos or entity is null
+     * @see Playfield#moveEntity(Entity, Position)
+     */
+    public void moveEntity(final Entity entity, final Position pos) {
+        if (pos == null) throw new IllegalArgumentException("The given pos is null.");
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        this.operations.add(new Operation(OperationType.MOVE, entity, pos));
+    }
+
+    /**
+     * Record removing the given entity.
+     *
+     * @param entity
+     *     The entity to remove; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given entity is null
+     * @see Playfield#removeEntity(Entity)
+     */
+    public void removeEntity(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        this.operations.add(new Operation(OperationType.REMOVE, entity, null));
+    }
+
+    /**
+     * @return the recorded operations in the order they were recorded
+     */
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(this.operations);
+    }
+
+    /**
+     * @return the number of recorded operations
+     */
+    public int size() {
+        return this.operations.size();
+    }
+
+    /**
+     * @return whether no operation was recorded
+     */
+    public boolean isEmpty() {
+        return this.operations.isEmpty();
+    }
+
+    /**
+     * Remove all recorded operations, so that this batch can be reused.
+     */
+    public void clear() {
+        this.operations.clear();
+    }
+
+    /**
+     * The type of a recorded operation.
+     */
+    public enum OperationType {
+        /** Add an entity to the playfield. */
+        ADD,
+        /** Move an entity on the playfield. */
+        MOVE,
+        /** Remove an entity from the playfield. */
+        REMOVE
+    }
+
+    /**
+     * A single recorded operation.
+     */
+    public static final class Operation {
+        private final OperationType type;
+        private final Entity        entity;
+        private final Position      position;
+
+        private Operation(final OperationType type, final Entity entity, final Position position) {
+            this.type = type;
+            this.entity = entity;
+            this.position = position;
+        }
+
+        /**
+         * @return the type of this operation
+         */
+        public OperationType getType() {
+            return this.type;
+        }
+
+        /**
+         * @return the entity this operation modifies
+         */
+        public Entity getEntity() {
+            return this.entity;
+        }
+
+        /**
+         * @return the target position of this operation or null for {@link OperationType#REMOVE}
+         */
+        public Position getPosition() {
+            return this.position;
+        }
+    }
+}
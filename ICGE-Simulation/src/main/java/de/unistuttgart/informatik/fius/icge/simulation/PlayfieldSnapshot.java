@@ -0,0 +1,80 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation;
+
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+
+
+/**
+ * An immutable view of the entities on a playfield and their positions at one point in time.
+ * <p>
+ * A snapshot never changes after it was created, so it can be read from any thread without locking and without blocking
+ * entities that are modifying the playfield. See {@link Playfield#getSnapshot()}.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public interface PlayfieldSnapshot {
+
+    /**
+     * @return the number of the last simulation clock tick before this snapshot was taken
+     */
+    long getTickNumber();
+
+    /**
+     * Get all entities which were on the playfield when this snapshot was taken.
+     * <p>
+     * Warning: No order is guaranteed.
+     * </p>
+     *
+     * @return An unmodifiable list of all entities
+     */
+    List<Entity> getEntities();
+
+    /**
+     * Check whether the specified entity was on the playfield when this snapshot was taken.
+     *
+     * @param entity
+     *     The entity to check; must <b>not</b> be <b>null</b>
+     * @return whether the given entity was on the playfield
+     * @throws IllegalArgumentException
+     *     if the given entity is null
+     */
+    boolean containsEntity(Entity entity);
+
+    /**
+     * Get the position the specified entity had when this snapshot was taken.
+     *
+     * @param entity
+     *     The entity to get the position of; <b>must</b> be <b>in the snapshot</b>; must <b>not</b> be <b>null</b>
+     * @return The position of the given entity
+     * @throws EntityNotOnFieldException
+     *     if the given entity was not on the playfield
+     * @throws IllegalArgumentException
+     *     if the given entity is null
+     */
+    Position getEntityPosition(Entity entity);
+
+    /**
+     * Get the draw information of all entities in this snapshot.
+     * <p>
+     * The draw information is requested from the entities when the snapshot is taken, right after their positions were
+     * collected, so it does not change afterwards. It is requested without locking the playfield, so an entity which
+     * moved in between is drawn at its newer position and an entity which was removed in between is not drawn.
+     * </p>
+     *
+     * @return An unmodifiable list of the draw information of the entities
+     */
+    List<Drawable> getDrawables();
+}
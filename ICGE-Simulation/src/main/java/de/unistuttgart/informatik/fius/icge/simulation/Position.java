@@ -9,9 +9,6 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation;
 
-import java.util.Arrays;
-
-
 /**
  * Represents a position on the playfield.
  * <p>
@@ -70,18 +67,8 @@ public class Position {
      * @return The position adjacent to this in the given direction
      */
     public Position adjacentPosition(final Direction direction) {
-        switch (direction) {
-            case EAST:
-                return new Position(this.getX() + 1, this.getY());
-            case NORTH:
-                return new Position(this.getX(), this.getY() - 1);
-            case SOUTH:
-                return new Position(this.getX(), this.getY() + 1);
-            case WEST:
-                return new Position(this.getX() - 1, this.getY());
-            default:
-                throw new IllegalArgumentException("Unknown direction");
-        }
+        if (direction == null) throw new IllegalArgumentException("Unknown direction");
+        return new Position(this.getX() + direction.getOffsetX(), this.getY() + direction.getOffsetY());
     }
 
     @Override
@@ -93,8 +80,8 @@ public class Position {
 
     @Override
     public int hashCode() {
-        final int[] numbers = { this.x, this.y };
-        return Arrays.hashCode(numbers);
+        // same value as Arrays.hashCode(new int[] { x, y }) without allocating the array
+        return (31 * (31 + this.x)) + this.y;
     }
 
     @Override
@@ -59,10 +59,23 @@ public interface Simulation {
      */
     ActionLog getActionLog();
 
+    /**
+     * Get whether this simulation is headless.
+     * <p>
+     * A headless simulation can not be attached to a window. It does not produce render ticks, animations or anything
+     * else that is only needed for drawing.
+     * </p>
+     *
+     * @return whether this simulation is headless
+     */
+    boolean isHeadless();
+
     /**
      * Get the simulation proxy used by the game window to communicate with the simulation.
      *
      * @return The simulation proxy for the UI to use
+     * @throws IllegalStateException
+     *     if this simulation is headless
      */
     SimulationProxy getSimulationProxyForWindow();
 
@@ -71,6 +84,8 @@ public interface Simulation {
      *
      * @param window
      *     The window to attach to
+     * @throws IllegalStateException
+     *     if this simulation is headless
      */
     void attachToWindow(GameWindow window);
 
@@ -81,6 +96,8 @@ public interface Simulation {
      *     The window to attach to
      * @param stopWithWindowClose
      *     If {@code true} the simulation will stop when the attached window is closed
+     * @throws IllegalStateException
+     *     if this simulation is headless
      */
     void attachToWindow(GameWindow window, boolean stopWithWindowClose);
 
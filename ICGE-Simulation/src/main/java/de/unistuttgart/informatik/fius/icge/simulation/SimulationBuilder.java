@@ -26,6 +26,13 @@ public class SimulationBuilder {
 
     private TaskVerifier taskVerifier;
 
+    private SimulationClock.ClockMode clockMode = SimulationClock.ClockMode.REAL_TIME;
+
+    private boolean headless;
+
+    private long actionLogMaxTicks;
+    private int  actionLogMaxActions;
+
     private Simulation simulation;
 
     /**
@@ -48,6 +55,83 @@ public class SimulationBuilder {
         this.taskVerifier = taskVerifier;
     }
 
+    /**
+     * Set the mode of the simulation clock.
+     * <p>
+     * The default is {@link SimulationClock.ClockMode#REAL_TIME}. Use {@link SimulationClock.ClockMode#FAST_FORWARD} to
+     * run the simulation as fast as possible, for example to verify a task.
+     * </p>
+     * <p>
+     * This method can only be called before building the simulation. It is not possible to change it after the
+     * simulation has been built.
+     * </p>
+     *
+     * @param clockMode
+     *     The clock mode to use
+     */
+    public void setClockMode(final SimulationClock.ClockMode clockMode) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        if (clockMode == null) throw new IllegalArgumentException("The given clock mode is null.");
+        this.clockMode = clockMode;
+    }
+
+    /**
+     * Set whether the simulation should be headless.
+     * <p>
+     * A headless simulation can not be attached to a window and skips all work that is only needed for drawing: The
+     * playfield does not send drawables or maintain the entity tree of the sidebar, the clock produces only simulation
+     * ticks and no render ticks and entities do not create animations. The default is {@code false}.
+     * </p>
+     * <p>
+     * This method can only be called before building the simulation. It is not possible to change it after the
+     * simulation has been built.
+     * </p>
+     *
+     * @param headless
+     *     Whether to build a headless simulation
+     */
+    public void setHeadless(final boolean headless) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        this.headless = headless;
+    }
+
+    /**
+     * Limit the number of logged actions which are kept in memory.
+     * <p>
+     * Older actions are moved to a temporary file, which is deleted when the simulation is stopped. All methods of the
+     * action log still return them. The limits are applied in steps of a few thousand actions. By default all actions
+     * are kept in memory.
+     * </p>
+     * <p>
+     * This method can only be called before building the simulation. It is not possible to change it after the
+     * simulation has been built.
+     * </p>
+     *
+     * @param maxTicks
+     *     The number of most recent ticks whose actions should be kept in memory or {@code 0} for no limit
+     * @param maxActions
+     *     The number of most recent actions which should be kept in memory or {@code 0} for no limit
+     */
+    public void setActionLogRetention(final long maxTicks, final int maxActions) {
+        if (
+            this.hasBuiltSimulation()
+        ) throw new IllegalStateException(
+                "The simulation was already built! Use the methods of the Simulation Object to change its properties."
+        );
+        if (maxTicks < 0) throw new IllegalArgumentException("The given number of ticks is negative.");
+        if (maxActions < 0) throw new IllegalArgumentException("The given number of actions is negative.");
+        this.actionLogMaxTicks = maxTicks;
+        this.actionLogMaxActions = maxActions;
+    }
+
     /**
      * Actually build the simulation.
      *
@@ -59,16 +143,17 @@ public class SimulationBuilder {
         if (this.hasBuiltSimulation())
             throw new IllegalStateException("The simulation was already built! Use getBuiltSimulation() to acess the built window.");
         final StandardPlayfield playfield = new StandardPlayfield();
-        final StandardSimulationClock simulationClock = new StandardSimulationClock();
+        final StandardSimulationClock simulationClock = new StandardSimulationClock(this.clockMode, this.headless);
+        simulationClock.registerMetricsMBean();
 
         final StandardEntityTypeRegistry entityTypeRegistry = new StandardEntityTypeRegistry();
 
-        final StandardActionLog actionLog = new StandardActionLog();
+        final StandardActionLog actionLog = new StandardActionLog(this.actionLogMaxTicks, this.actionLogMaxActions);
 
         final InspectionManager inspectionManager = new InspectionManager();
 
         this.simulation = new StandardSimulation(
-                playfield, simulationClock, entityTypeRegistry, actionLog, inspectionManager, this.taskVerifier
+                playfield, simulationClock, entityTypeRegistry, actionLog, inspectionManager, this.taskVerifier, this.headless
         );
     }
 
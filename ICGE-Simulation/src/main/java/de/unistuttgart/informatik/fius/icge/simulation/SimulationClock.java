@@ -11,6 +11,9 @@ package de.unistuttgart.informatik.fius.icge.simulation;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Predicate;
+
+import de.unistuttgart.informatik.fius.icge.simulation.exception.TimerAlreadyRunning;
 
 
 /**
@@ -32,6 +35,137 @@ public interface SimulationClock {
      */
     int DEFAULT_RENDER_TICK_PERIOD = 50;
 
+    /**
+     * The time in milliseconds the clock waits for a busy program or task by default.
+     *
+     * @see #setBusyActorTimeout(long)
+     */
+    long DEFAULT_BUSY_ACTOR_TIMEOUT = 5000;
+
+    /**
+     * The modes in which a clock can produce its ticks.
+     */
+    enum ClockMode {
+        /**
+         * Ticks are produced with the configured period.
+         */
+        REAL_TIME,
+        /**
+         * The next simulation tick is started as soon as all operations of the current tick have completed and all
+         * programs and tasks of the simulation are waiting for a later tick. The clock does not wait for wall-clock
+         * time, the animation listener is called at most once per render tick period.
+         */
+        FAST_FORWARD,
+        /**
+         * Like {@link #FAST_FORWARD}, but only one program or task runs at a time. Programs and tasks first run in the
+         * order in which they were started and the operations due at a tick are run one after another in the order in
+         * which they were scheduled. A simulation therefore produces the same result every time it runs, as long as its
+         * programs and tasks only wait through the simulation.
+         */
+        DETERMINISTIC
+    }
+
+    /**
+     * The policies for a clock in {@link ClockMode#REAL_TIME} mode for ticks which could not start in time, because an
+     * earlier tick took longer than the period.
+     */
+    enum TickPolicy {
+        /**
+         * The next tick starts one period after the start of the previous one. Late ticks delay all following ticks.
+         */
+        FIXED_DELAY,
+        /**
+         * Ticks are due at fixed multiples of the period. Late ticks are processed immediately one after another until
+         * the clock has caught up. If the clock is behind by more than two simulation tick periods, for example after
+         * the process was suspended, the older ticks are delayed instead of caught up.
+         */
+        CATCH_UP,
+        /**
+         * Like {@link #CATCH_UP}, but render ticks which are late by at least one period are skipped. Simulation ticks
+         * are never skipped, so the simulation stays on schedule while the animation drops frames.
+         */
+        SKIP_RENDER_TICKS,
+        /**
+         * Like {@link #CATCH_UP}, but the animation listener is not called for ticks which are late by at least one
+         * period, so that these ticks are cheaper.
+         */
+        DEGRADE_ANIMATION
+    }
+
+    /**
+     * Get the mode in which this clock produces its ticks.
+     *
+     * @return the mode of this clock
+     */
+    ClockMode getClockMode();
+
+    /**
+     * Set the policy for ticks which could not start in time. Only used in {@link ClockMode#REAL_TIME} mode.
+     * <p>
+     * The default is {@link TickPolicy#FIXED_DELAY}.
+     * </p>
+     *
+     * @param policy
+     *     The policy to use
+     */
+    void setTickPolicy(TickPolicy policy);
+
+    /**
+     * @return the policy for ticks which could not start in time
+     */
+    TickPolicy getTickPolicy();
+
+    /**
+     * Set whether the operations due at the same tick are released all at once. Not used in
+     * {@link ClockMode#DETERMINISTIC} mode.
+     * <p>
+     * By default the operations are released one after another in the order they were scheduled, so a tick takes as
+     * long as all its operations together. If they are released at once, a tick only takes as long as its slowest
+     * operation. But then the operations of different entities run concurrently: an entity which checks the playfield
+     * and then changes it, for example a {@link de.unistuttgart.informatik.fius.icge.simulation.entity.MovableEntity}
+     * checking for solid entities before moving, may act on an outdated check, and the order of the actions logged
+     * during a tick is not deterministic. Only enable this for simulations whose entities do not interact.
+     * </p>
+     *
+     * @param parallel
+     *     Whether to release the operations of a tick at once
+     */
+    void setParallelOperations(boolean parallel);
+
+    /**
+     * @return whether the operations due at the same tick are released all at once
+     */
+    boolean isParallelOperations();
+
+    /**
+     * Set how long the clock waits for a busy program or task in {@link ClockMode#FAST_FORWARD} and
+     * {@link ClockMode#DETERMINISTIC} mode. Not used in {@link ClockMode#REAL_TIME} mode.
+     * <p>
+     * A program or task blocking outside of the clock, for example in {@link Thread#sleep(long)}, on I/O or on a
+     * monitor, looks busy to the clock. Once it was busy for longer than this timeout, a warning is printed and the
+     * clock no longer waits for it until it schedules its next operation or calls
+     * {@link #awaitIdle(CompletableFuture)}. The default is {@value #DEFAULT_BUSY_ACTOR_TIMEOUT} milliseconds.
+     * </p>
+     *
+     * @param millis
+     *     The timeout in milliseconds; {@code 0} to wait forever
+     * @throws IllegalArgumentException
+     *     if the given timeout is negative
+     */
+    void setBusyActorTimeout(long millis);
+
+    /**
+     * @return how long the clock waits for a busy program or task in milliseconds; {@code 0} if it waits forever
+     */
+    long getBusyActorTimeout();
+
+    /**
+     * Get the metrics about the ticks processed by this clock.
+     *
+     * @return the metrics of this clock
+     */
+    ClockMetrics getMetrics();
+
     /**
      * Set the period of the render ticks. The game ticks will have this period times
      * {@value #RENDER_TICKS_PER_SIMULATION_TICK}.
@@ -80,6 +214,55 @@ public interface SimulationClock {
      */
     void step();
 
+    /**
+     * Produce the given number of simulation ticks on the calling thread.
+     * <p>
+     * After each tick this waits until all programs and tasks of the simulation have finished their operations of that
+     * tick and are waiting for a later tick, but it never waits for wall-clock time. Render ticks are skipped. This
+     * makes it possible to drive a simulation deterministically, for example in tests.
+     * </p>
+     *
+     * @param ticks
+     *     The number of simulation ticks to produce; must be {@code >= 0}
+     * @throws TimerAlreadyRunning
+     *     if the clock is running
+     * @throws IllegalStateException
+     *     if called from a thread running a program or task of the simulation
+     */
+    void advance(long ticks);
+
+    /**
+     * Produce simulation ticks on the calling thread like {@link #advance(long)} until the given condition holds.
+     * <p>
+     * The condition is checked before the first tick and after each tick.
+     * </p>
+     *
+     * @param condition
+     *     The condition to wait for
+     * @return whether the condition holds; only false if the clock was stopped or shut down in the meantime
+     * @throws TimerAlreadyRunning
+     *     if the clock is running
+     * @throws IllegalStateException
+     *     if called from a thread running a program or task of the simulation
+     */
+    boolean runUntil(Predicate<Simulation> condition);
+
+    /**
+     * Produce simulation ticks on the calling thread like {@link #advance(long)} until the given condition holds, but
+     * at most the given number of ticks.
+     *
+     * @param condition
+     *     The condition to wait for
+     * @param maxTicks
+     *     The maximum number of simulation ticks to produce; must be {@code >= 0}
+     * @return whether the condition holds
+     * @throws TimerAlreadyRunning
+     *     if the clock is running
+     * @throws IllegalStateException
+     *     if called from a thread running a program or task of the simulation
+     */
+    boolean runUntil(Predicate<Simulation> condition, long maxTicks);
+
     /**
      * Register a listener for simulation ticks.
      * <p>
@@ -154,4 +337,21 @@ public interface SimulationClock {
      *     if the end of operation completes exceptionally
      */
     void scheduleOperationAtNextTick(CompletableFuture<Void> endOfOperation);
+
+    /**
+     * Block the current thread until the given future is completed, for example the end of an operation of another
+     * thread.
+     * <p>
+     * In {@link ClockMode#FAST_FORWARD} and {@link ClockMode#DETERMINISTIC} mode the clock only produces the next tick
+     * when all programs and tasks are idle, which they are only while waiting for a scheduled operation or in this
+     * method. A program or task waiting for something that only happens in a later tick must use this method instead of
+     * blocking directly, otherwise the clock waits for it forever.
+     * </p>
+     *
+     * @param future
+     *     The future to wait for
+     * @throws IllegalArgumentException
+     *     if the given future is null
+     */
+    void awaitIdle(CompletableFuture<?> future);
 }
@@ -10,12 +10,25 @@
 package de.unistuttgart.informatik.fius.icge.simulation.actions;
 
 import java.util.List;
+import java.util.concurrent.Flow;
 
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 
 
 /**
  * A log for all {@link Action}s.
+ * <p>
+ * The lists returned by a log may create a new action object each time an element is accessed, instead of returning the
+ * logged object. Getting the same element twice can therefore return two different objects with the same values.
+ * Actions do not override {@link Object#equals(Object)}, so methods like {@link List#contains(Object)} and
+ * {@link List#indexOf(Object)} of these lists cannot find a logged action. Compare the values of the actions instead,
+ * for example their tick number and entity.
+ * </p>
+ * <p>
+ * A log may move older actions out of memory into a temporary file, which is deleted when the simulation is stopped.
+ * Afterwards reading such an action, also through a list returned before, throws an {@link IllegalStateException}. Copy
+ * the actions which are needed after the simulation was stopped before stopping it.
+ * </p>
  *
  * @author Tim Neumann
  */
@@ -70,6 +83,114 @@ public interface ActionLog {
             Entity entity, final Class<? extends T> type, final boolean includeSubclasses
     );
 
+    /**
+     * Count the actions which were logged of the given type.
+     * <p>
+     * Unlike {@code getActionsOfType(type, includeSubclasses).size()} this does not need to collect the actions.
+     * </p>
+     *
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of matching actions
+     */
+    default long countActionsOfType(final Class<? extends Action> type, final boolean includeSubclasses) {
+        return this.getActionsOfType(type, includeSubclasses).size();
+    }
+
+    /**
+     * Count the actions which were logged and were caused by the given entity.
+     *
+     * @param entity
+     *     The entity to count the actions of
+     * @return The number of matching actions
+     */
+    default long countActionsOfEntity(final Entity entity) {
+        return this.getAllActionsOfEntity(entity).size();
+    }
+
+    /**
+     * Count the actions which were logged of the given type and were caused by the given entity.
+     *
+     * @param entity
+     *     The entity to count the actions of
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return The number of matching actions
+     */
+    default long countActionsOfTypeOfEntity(
+            final Entity entity, final Class<? extends EntityAction> type, final boolean includeSubclasses
+    ) {
+        return this.getActionsOfTypeOfEntity(entity, type, includeSubclasses).size();
+    }
+
+    /**
+     * Get the sequence number the next logged action will get.
+     * <p>
+     * Every logged action gets the number of actions logged before it as sequence number. Remember this number and
+     * later pass it to {@link #actionsSince(long)} to only get the actions which were logged in the meantime.
+     * </p>
+     *
+     * @return The sequence number of the next action
+     */
+    long getNextSequenceNumber();
+
+    /**
+     * Get all actions which were logged since the action with the given sequence number, including that action.
+     *
+     * @param sequenceNumber
+     *     The sequence number of the first action to get; see {@link #getNextSequenceNumber()}
+     * @return A list of all matching actions in the order they were logged
+     * @throws IllegalArgumentException
+     *     if the given sequence number is negative
+     */
+    List<Action> actionsSince(long sequenceNumber);
+
+    /**
+     * Subscribe to the actions which are logged of the given type.
+     * <p>
+     * The subscriber receives the matching actions of each tick which are logged after subscribing as one list, on a
+     * different thread than the one which logged them. It controls how many lists it receives with
+     * {@link Flow.Subscription#request(long)}. A subscriber which requests less lists than are logged falls behind, but
+     * never slows down the simulation; it receives the missed lists from the log when it requests more. The
+     * subscription is completed when the simulation is stopped.
+     * </p>
+     *
+     * @param <T>
+     *     The generic type to receive the actions as
+     * @param type
+     *     The type of the actions to receive
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param subscriber
+     *     The subscriber to receive the actions
+     */
+    <T extends Action> void subscribe(Class<? extends T> type, boolean includeSubclasses, Flow.Subscriber<? super List<T>> subscriber);
+
+    /**
+     * Subscribe to the actions which are logged of the given type and are caused by the given entity.
+     * <p>
+     * See {@link #subscribe(Class, boolean, java.util.concurrent.Flow.Subscriber)}.
+     * </p>
+     *
+     * @param <T>
+     *     The generic type to receive the actions as
+     * @param entity
+     *     The entity to receive actions for
+     * @param type
+     *     The type of the actions to receive
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param subscriber
+     *     The subscriber to receive the actions
+     */
+    <T extends EntityAction> void subscribe(
+            Entity entity, Class<? extends T> type, boolean includeSubclasses, Flow.Subscriber<? super List<T>> subscriber
+    );
+
     /**
      * Log an action.
      *
@@ -78,6 +199,22 @@ public interface ActionLog {
      */
     void logAction(Action actionToLog);
 
+    /**
+     * Log multiple actions at once.
+     * <p>
+     * Every action is logged as if {@link #logAction(Action)} was called for it, but implementations may handle the
+     * whole list at once; for example by printing a single summary to the console.
+     * </p>
+     *
+     * @param actionsToLog
+     *     The actions to log in order
+     */
+    default void logActions(final List<? extends Action> actionsToLog) {
+        for (final Action action : actionsToLog) {
+            this.logAction(action);
+        }
+    }
+
     /**
      * Set ActionLog console output (default: {@code true})
      *
@@ -18,6 +18,7 @@ import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityOnAnotherFieldException;
 import de.unistuttgart.informatik.fius.icge.simulation.inspection.InspectionAttribute;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.EntityPositionHook;
 import de.unistuttgart.informatik.fius.icge.ui.BasicDrawable;
 import de.unistuttgart.informatik.fius.icge.ui.Drawable;
 
@@ -28,11 +29,16 @@ import de.unistuttgart.informatik.fius.icge.ui.Drawable;
  * @author Tim Neumann
  */
 public abstract class BasicEntity implements Entity {
+    static {
+        EntityPositionHook.install(BasicEntity::updatePlayfieldPosition);
+    }
 
     /** Lock object to make setting the Playfield threadsafe. */
     private Object                   fieldLock = new Object();
     /** The current (weak) reference to the playfield. */
     private WeakReference<Playfield> field;
+    /** The attachment record last published by the playfield; used to read the position without any lock. */
+    private volatile Attachment      attachment;
 
     /**
      * Lock object to ensure no two long running operations ({@code >= 1} clock tick) are scheduled at the same time.
@@ -48,6 +54,8 @@ public abstract class BasicEntity implements Entity {
     @InspectionAttribute(readOnly = true)
     @Override
     public Position getPosition() {
+        final Attachment current = this.attachment;
+        if ((current != null) && current.isAttached()) return current.position;
         // never synchronize on fieldLock in this method to avoid deadlocks!
         // local variable to avoid race conditions in if later
         WeakReference<Playfield> field = this.field;
@@ -93,12 +101,35 @@ public abstract class BasicEntity implements Entity {
         }
     }
 
+    /**
+     * Store the current position of this entity on the playfield.
+     * <p>
+     * Only called by the playfield through the {@link EntityPositionHook} whenever this entity was added, moved or
+     * removed. The calls for one entity never overlap and the playfield may hold internal locks while calling this.
+     * </p>
+     *
+     * @param playfield
+     *     The playfield this entity is on; must <b>not</b> be <b>null</b>
+     * @param position
+     *     The new position of this entity or null if it was removed from the playfield
+     */
+    void updatePlayfieldPosition(final Playfield playfield, final Position position) {
+        if (playfield == null) throw new IllegalArgumentException("The given playfield is null.");
+        final Attachment previous = this.attachment;
+        final WeakReference<Playfield> playfieldReference = ((previous != null) && (previous.playfield.get() == playfield))
+                ? previous.playfield
+                : new WeakReference<>(playfield);
+        this.attachment = new Attachment(playfieldReference, position);
+    }
+
     /**
      * Check whether this entity is on a playfield
      *
      * @return true if and only if this entity is on a playfield
      */
     public boolean isOnPlayfield() {
+        final Attachment current = this.attachment;
+        if ((current != null) && current.isAttached()) return true;
         synchronized (this.fieldLock) {
             if (this.field == null) return false;
             final Playfield playfield = this.field.get();
@@ -123,6 +154,11 @@ public abstract class BasicEntity implements Entity {
      *     if this entity is not on a playfield
      */
     protected Playfield getPlayfield() {
+        final Attachment current = this.attachment;
+        if (current != null) {
+            final Playfield playfield = current.playfield.get();
+            if ((playfield != null) && (current.position != null)) return playfield;
+        }
         synchronized (this.fieldLock) {
             if (!this.isOnPlayfield()) throw new EntityNotOnFieldException("This entity is not on a playfield");
             return this.field.get();
@@ -139,8 +175,30 @@ public abstract class BasicEntity implements Entity {
      *     if the playfield of this entity is not part of any simulation
      */
     protected Simulation getSimulation() {
-        synchronized (this.fieldLock) {
-            return this.getPlayfield().getSimulation();
+        return this.getPlayfield().getSimulation();
+    }
+
+    /**
+     * Inform the playfield of this entity that the result of {@link SolidEntity#isCurrentlySolid()} changed.
+     * <p>
+     * Does nothing if this entity is not on a playfield.
+     * </p>
+     *
+     * @throws IllegalStateException
+     *     if this entity is not a {@link SolidEntity}
+     */
+    protected void notifySolidityChanged() {
+        if (!(this instanceof SolidEntity)) throw new IllegalStateException("Only solid entities can change their solidity.");
+        final Playfield playfield;
+        try {
+            playfield = this.getPlayfield();
+        } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
+            return;
+        }
+        try {
+            playfield.notifySolidityChanged((SolidEntity) this);
+        } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
+            // entity was removed in the mean time, so there is nothing to update
         }
     }
 
@@ -200,9 +258,16 @@ public abstract class BasicEntity implements Entity {
             endOfLastEnqueuedOperation = this.endOfLastEnqueuedOperation;
             this.endOfLastEnqueuedOperation = endOfNewOperation;
         }
-        if (endOfLastEnqueuedOperation != null) {
+        if ((endOfLastEnqueuedOperation == null) || endOfLastEnqueuedOperation.isDone()) return;
+        final Simulation simulation;
+        try {
+            simulation = this.getSimulation();
+        } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
             endOfLastEnqueuedOperation.join();
+            return;
         }
+        // let the clock know that this thread waits for an operation which may only end in a later tick
+        simulation.getSimulationClock().awaitIdle(endOfLastEnqueuedOperation);
     }
 
     @Override
@@ -210,4 +275,24 @@ public abstract class BasicEntity implements Entity {
         return this.getClass().getSimpleName() + "@" + Integer.toHexString(this.hashCode());
     }
 
+    /**
+     * An immutable record of the playfield and position of an entity.
+     */
+    private static final class Attachment {
+        private final WeakReference<Playfield> playfield;
+        private final Position                 position;
+
+        private Attachment(final WeakReference<Playfield> playfield, final Position position) {
+            this.playfield = playfield;
+            this.position = position;
+        }
+
+        /**
+         * @return whether the entity is on a playfield according to this record
+         */
+        private boolean isAttached() {
+            return (this.position != null) && (this.playfield.get() != null);
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.entity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Writes and reads entities which are not on the playfield themselves, like the contents of an {@link Inventory}.
+ * <p>
+ * An entity is stored by the name of its type in the {@link EntityTypeRegistry} and, if it is a
+ * {@link PersistableEntity}, its state.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public interface EntitySerializer {
+
+    /**
+     * Write the given entity.
+     *
+     * @param out
+     *     The output to write to
+     * @param entity
+     *     The entity to write; its type must be registered in the {@link EntityTypeRegistry}
+     * @throws IOException
+     *     if writing fails
+     * @throws IllegalArgumentException
+     *     if the type of the entity is not registered
+     */
+    void writeEntity(DataOutput out, Entity entity) throws IOException;
+
+    /**
+     * Read an entity, which was written by {@link #writeEntity(DataOutput, Entity)}.
+     *
+     * @param in
+     *     The input to read from
+     * @return a new entity with the read state
+     * @throws IOException
+     *     if reading fails or the data is invalid
+     */
+    Entity readEntity(DataInput in) throws IOException;
+}
@@ -91,4 +91,19 @@ public interface EntityTypeRegistry {
      *     if an argument is null
      */
     Entity getNewEntity(final String typeName);
+
+    /**
+     * Get the name of the registered entity type the given entity belongs to.
+     * <p>
+     * An entity belongs to the type whose factory created an entity of the same class when it was tested during
+     * registration. If multiple types create entities of the same class, the type registered first is used.
+     * </p>
+     *
+     * @param entity
+     *     the entity to get the type name for
+     * @return the name of the entity type or null if no registered type creates entities of that class
+     * @throws IllegalArgumentException
+     *     if an argument is null
+     */
+    String getTypeNameOfEntity(final Entity entity);
 }
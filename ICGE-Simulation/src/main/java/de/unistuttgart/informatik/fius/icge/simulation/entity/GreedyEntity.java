@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
@@ -39,6 +42,39 @@ public abstract class GreedyEntity extends MovableEntity implements EntityCollec
         return this.inventory;
     }
 
+    /**
+     * Writes the looking direction and the inventory of this entity.
+     */
+    @Override
+    public void writeState(final DataOutput out, final EntitySerializer serializer) throws IOException {
+        super.writeState(out, serializer);
+        final List<CollectableEntity> items;
+        synchronized (this.inventoryOperationLock) {
+            items = this.inventory.get(CollectableEntity.class, true);
+        }
+        out.writeInt(items.size());
+        for (final CollectableEntity item : items) {
+            serializer.writeEntity(out, item);
+        }
+    }
+
+    /**
+     * Reads the looking direction and the inventory of this entity.
+     */
+    @Override
+    public void readState(final DataInput in, final EntitySerializer serializer) throws IOException {
+        super.readState(in, serializer);
+        final int count = in.readInt();
+        if (count < 0) throw new IOException("Invalid inventory size: " + count);
+        synchronized (this.inventoryOperationLock) {
+            for (int i = 0; i < count; i++) {
+                final Entity item = serializer.readEntity(in);
+                if (!(item instanceof CollectableEntity)) throw new IOException("Inventory item is not collectable: " + item);
+                this.inventory.add((CollectableEntity) item);
+            }
+        }
+    }
+
     @Override
     public boolean canCarry(final Class<? extends CollectableEntity> type) {
         return true;
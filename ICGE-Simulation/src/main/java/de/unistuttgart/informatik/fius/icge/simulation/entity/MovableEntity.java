@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Direction;
@@ -30,7 +33,7 @@ import de.unistuttgart.informatik.fius.icge.ui.Drawable;
  *
  * @author Tim Neumann
  */
-public abstract class MovableEntity extends BasicEntity {
+public abstract class MovableEntity extends BasicEntity implements PersistableEntity {
 
     private Direction lookingDirection = Direction.EAST;
 
@@ -46,6 +49,24 @@ public abstract class MovableEntity extends BasicEntity {
         return new UntilableDrawable(pos.getX(), pos.getY(), this.getZPosition(), this.getTextureHandle());
     }
 
+    /**
+     * Writes the looking direction of this entity.
+     */
+    @Override
+    public void writeState(final DataOutput out, final EntitySerializer serializer) throws IOException {
+        out.writeByte(this.lookingDirection.ordinal());
+    }
+
+    /**
+     * Reads the looking direction of this entity.
+     */
+    @Override
+    public void readState(final DataInput in, final EntitySerializer serializer) throws IOException {
+        final int direction = in.readUnsignedByte();
+        if (direction >= Direction.values().length) throw new IOException("Invalid looking direction: " + direction);
+        this.lookingDirection = Direction.values()[direction];
+    }
+
     /**
      * Turn this entity for 90 degrees in clock wise direction.
      */
@@ -124,7 +145,7 @@ public abstract class MovableEntity extends BasicEntity {
     }
 
     private boolean isSolidEntityAt(final Position pos) {
-        return this.getPlayfield().isSolidEntityAt(pos);
+        return this.getPlayfield().isSolidEntityAt(pos.getX(), pos.getY());
     }
 
     /**
@@ -148,10 +169,12 @@ public abstract class MovableEntity extends BasicEntity {
         this.directionOfAlmostArrivedMove = null;
         Position currentPos = this.getPosition();
         Position nextPos = currentPos.adjacentPosition(this.lookingDirection);
-        this.movingDrawable = new AnimatedDrawable(
-                currentTick, currentPos.getX(), currentPos.getY(), renderTickDuration, nextPos.getX(), nextPos.getY(), this.getZPosition(),
-                this.getTextureHandle()
-        );
+        if (!this.getSimulation().isHeadless()) {
+            this.movingDrawable = new AnimatedDrawable(
+                    currentTick, currentPos.getX(), currentPos.getY(), renderTickDuration, nextPos.getX(), nextPos.getY(),
+                    this.getZPosition(), this.getTextureHandle()
+            );
+        }
 
         final CompletableFuture<Void> endOfOperation1 = new CompletableFuture<>();
         try {
@@ -197,8 +220,10 @@ public abstract class MovableEntity extends BasicEntity {
      * @return whether this entity can move forward one field.
      */
     public boolean canMove() {
-        final Position nextPos = this.getPosition().adjacentPosition(this.lookingDirection);
-        return this.isOnPlayfield() && !this.isSolidEntityAt(nextPos);
+        final Position currentPos = this.getPosition();
+        final Direction direction = this.lookingDirection;
+        return this.isOnPlayfield() && !this.getPlayfield()
+                .isSolidEntityAt(currentPos.getX() + direction.getOffsetX(), currentPos.getY() + direction.getOffsetY());
     }
 
     /**
@@ -0,0 +1,62 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.entity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+
+
+/**
+ * An entity with internal state which is kept when the playfield is saved and restored.
+ * <p>
+ * When a playfield is saved (see {@link Playfield#saveState(java.nio.file.Path)}), every entity is stored by the name
+ * of its entity type in the {@link EntityTypeRegistry} and its position. Entities implementing this interface can
+ * additionally store their own state. On restore a new entity is created with the registered factory and
+ * {@link #readState(DataInput, EntitySerializer)} is called before it is placed on the playfield.
+ * </p>
+ * <p>
+ * Implementations must read exactly the data they have written. Subclasses of persistable entities should call the
+ * method of their super class first.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public interface PersistableEntity extends Entity {
+
+    /**
+     * Write the state of this entity.
+     *
+     * @param out
+     *     The output to write to
+     * @param serializer
+     *     The serializer to use for other entities held by this entity
+     * @throws IOException
+     *     if writing fails
+     */
+    void writeState(DataOutput out, EntitySerializer serializer) throws IOException;
+
+    /**
+     * Read the state of this entity, which was written by {@link #writeState(DataOutput, EntitySerializer)}.
+     * <p>
+     * This is called on a newly created entity, before it is placed on a playfield.
+     * </p>
+     *
+     * @param in
+     *     The input to read from
+     * @param serializer
+     *     The serializer to use for other entities held by this entity
+     * @throws IOException
+     *     if reading fails or the data is invalid
+     */
+    void readState(DataInput in, EntitySerializer serializer) throws IOException;
+}
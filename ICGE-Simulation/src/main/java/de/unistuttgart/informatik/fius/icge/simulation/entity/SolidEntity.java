@@ -9,6 +9,9 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.entity;
 
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+
+
 /**
  * A solid entity, through which a movable entity cannot move.
  *
@@ -19,7 +22,15 @@ public interface SolidEntity extends Entity {
     /**
      * Get whether this entity is really solid at the moment.
      * <p>
-     * This can be used to make entities, that are not solid all the time.
+     * This can be used to make entities, that are not solid all the time. Such entities must inform the playfield about
+     * every change of the returned value with {@link Playfield#notifySolidityChanged(SolidEntity)} (or
+     * {@link BasicEntity#notifySolidityChanged()}).
+     * </p>
+     * <p>
+     * <b>Note:</b> The playfield only calls this method when the entity enters or leaves a position or reports a change
+     * and keeps the result for {@link Playfield#isSolidEntityAt(int, int)}. Earlier versions polled this method on
+     * every collision check, so entities which change their solidity without reporting it now stay solid or not solid
+     * for collision checks until they move.
      * </p>
      *
      * @return true if and only if this entity is currently solid
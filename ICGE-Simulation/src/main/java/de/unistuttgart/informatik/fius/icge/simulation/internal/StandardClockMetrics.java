@@ -0,0 +1,298 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import de.unistuttgart.informatik.fius.icge.simulation.ClockMetrics;
+
+
+/**
+ * The standard implementation of {@link ClockMetrics}.
+ * <p>
+ * The metrics are recorded by the thread processing the ticks and may be read by any thread.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class StandardClockMetrics implements ClockMetrics {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private long         renderTickCount;
+    private long         skippedRenderTickCount;
+    private long         simulationTickCount;
+    private long         totalSimulationTickNanos;
+    private long         maxSimulationTickNanos;
+    private final long[] simulationTickHistogram = new long[ClockMetrics.HISTOGRAM_BUCKETS];
+    private long         operationNanos;
+    private long         tickListenerNanos;
+    private long         postTickListenerNanos;
+    private long         animationListenerNanos;
+    private long         lastDueOperationCount;
+    private long         maxDueOperationCount;
+    private long         totalDueOperationCount;
+    private long         missedPeriodCount;
+    private long         totalJitterNanos;
+    private long         maxJitterNanos;
+
+    /** The time spent in the listeners by the class of the listener. */
+    private final Map<Class<?>, Long> listenerNanos = new HashMap<>();
+
+    private ObjectName mbeanName;
+
+    /**
+     * Record a processed render tick.
+     *
+     * @param durationNanos
+     *     The time the tick took
+     * @param jitterNanos
+     *     The delay of the start of the tick or a negative number if it was not measured
+     * @param periodNanos
+     *     The render tick period or a negative number if missed periods should not be counted
+     */
+    public synchronized void recordRenderTick(final long durationNanos, final long jitterNanos, final long periodNanos) {
+        this.renderTickCount++;
+        if (jitterNanos >= 0) {
+            this.totalJitterNanos += jitterNanos;
+            this.maxJitterNanos = Math.max(this.maxJitterNanos, jitterNanos);
+        }
+        if ((periodNanos >= 0) && (durationNanos > periodNanos)) {
+            this.missedPeriodCount++;
+        }
+    }
+
+    /**
+     * Record render ticks which were skipped because the clock was late.
+     *
+     * @param count
+     *     The number of skipped render ticks
+     */
+    public synchronized void recordSkippedRenderTicks(final int count) {
+        this.skippedRenderTickCount += count;
+    }
+
+    /**
+     * Record a processed simulation tick.
+     *
+     * @param durationNanos
+     *     The time the whole simulation tick took
+     * @param dueOperations
+     *     The number of operations which were due
+     * @param operationNanos
+     *     The time spent waiting for the operations
+     * @param tickListenerNanos
+     *     The time spent in tick listeners
+     * @param postTickListenerNanos
+     *     The time spent in post tick listeners
+     */
+    public synchronized void recordSimulationTick(
+            final long durationNanos, final int dueOperations, final long operationNanos, final long tickListenerNanos,
+            final long postTickListenerNanos
+    ) {
+        this.simulationTickCount++;
+        this.totalSimulationTickNanos += durationNanos;
+        this.maxSimulationTickNanos = Math.max(this.maxSimulationTickNanos, durationNanos);
+        this.simulationTickHistogram[StandardClockMetrics.bucketOf(durationNanos)]++;
+        this.lastDueOperationCount = dueOperations;
+        this.maxDueOperationCount = Math.max(this.maxDueOperationCount, dueOperations);
+        this.totalDueOperationCount += dueOperations;
+        this.operationNanos += operationNanos;
+        this.tickListenerNanos += tickListenerNanos;
+        this.postTickListenerNanos += postTickListenerNanos;
+    }
+
+    /**
+     * Record a call of the animation tick listener.
+     *
+     * @param listener
+     *     The listener which was called
+     * @param durationNanos
+     *     The time the listener took
+     */
+    public synchronized void recordAnimationListener(final Object listener, final long durationNanos) {
+        this.animationListenerNanos += durationNanos;
+        this.recordListener(listener, durationNanos);
+    }
+
+    /**
+     * Record a call of a single listener. The time is added to the total of the class of the listener.
+     *
+     * @param listener
+     *     The listener which was called
+     * @param durationNanos
+     *     The time the listener took
+     */
+    public synchronized void recordListener(final Object listener, final long durationNanos) {
+        this.listenerNanos.merge(listener.getClass(), durationNanos, Long::sum);
+    }
+
+    /**
+     * Get a readable name of the given listener class. The name of a lambda contains the class declaring it.
+     */
+    private static String nameOf(final Class<?> listenerClass) {
+        final String name = listenerClass.getName();
+        // hidden classes, like the ones of lambdas, have an address suffix, which is not helpful
+        final int suffix = name.indexOf('/');
+        return (suffix < 0) ? name : name.substring(0, suffix);
+    }
+
+    private static int bucketOf(final long durationNanos) {
+        final long micros = durationNanos / 1000;
+        final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, ClockMetrics.HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Register these metrics with the platform MBean server, if they are not registered yet.
+     */
+    public synchronized void registerMBean() {
+        if (this.mbeanName != null) return;
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(
+                    "de.unistuttgart.informatik.fius.icge:type=SimulationClock,id=" + StandardClockMetrics.NEXT_ID.getAndIncrement()
+            );
+            server.registerMBean(new StandardMBean(this, ClockMetrics.class, true), name);
+            this.mbeanName = name;
+        } catch (final JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Unregister these metrics from the platform MBean server, if they are registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (this.mbeanName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.mbeanName);
+        } catch (final JMException e) {
+            e.printStackTrace();
+        }
+        this.mbeanName = null;
+    }
+
+    @Override
+    public synchronized long getRenderTickCount() {
+        return this.renderTickCount;
+    }
+
+    @Override
+    public synchronized long getSkippedRenderTickCount() {
+        return this.skippedRenderTickCount;
+    }
+
+    @Override
+    public synchronized long getSimulationTickCount() {
+        return this.simulationTickCount;
+    }
+
+    @Override
+    public synchronized long getTotalSimulationTickNanos() {
+        return this.totalSimulationTickNanos;
+    }
+
+    @Override
+    public synchronized long getMaxSimulationTickNanos() {
+        return this.maxSimulationTickNanos;
+    }
+
+    @Override
+    public synchronized long[] getSimulationTickHistogram() {
+        return this.simulationTickHistogram.clone();
+    }
+
+    @Override
+    public synchronized long getOperationNanos() {
+        return this.operationNanos;
+    }
+
+    @Override
+    public synchronized long getTickListenerNanos() {
+        return this.tickListenerNanos;
+    }
+
+    @Override
+    public synchronized long getPostTickListenerNanos() {
+        return this.postTickListenerNanos;
+    }
+
+    @Override
+    public synchronized long getAnimationListenerNanos() {
+        return this.animationListenerNanos;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getListenerNanos() {
+        final Map<String, Long> result = new HashMap<>();
+        this.listenerNanos.forEach((listenerClass, nanos) -> result.merge(StandardClockMetrics.nameOf(listenerClass), nanos, Long::sum));
+        return result;
+    }
+
+    @Override
+    public synchronized long getLastDueOperationCount() {
+        return this.lastDueOperationCount;
+    }
+
+    @Override
+    public synchronized long getMaxDueOperationCount() {
+        return this.maxDueOperationCount;
+    }
+
+    @Override
+    public synchronized long getTotalDueOperationCount() {
+        return this.totalDueOperationCount;
+    }
+
+    @Override
+    public synchronized long getMissedPeriodCount() {
+        return this.missedPeriodCount;
+    }
+
+    @Override
+    public synchronized long getTotalJitterNanos() {
+        return this.totalJitterNanos;
+    }
+
+    @Override
+    public synchronized long getMaxJitterNanos() {
+        return this.maxJitterNanos;
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.renderTickCount = 0;
+        this.skippedRenderTickCount = 0;
+        this.simulationTickCount = 0;
+        this.totalSimulationTickNanos = 0;
+        this.maxSimulationTickNanos = 0;
+        Arrays.fill(this.simulationTickHistogram, 0);
+        this.operationNanos = 0;
+        this.tickListenerNanos = 0;
+        this.postTickListenerNanos = 0;
+        this.animationListenerNanos = 0;
+        this.listenerNanos.clear();
+        this.lastDueOperationCount = 0;
+        this.maxDueOperationCount = 0;
+        this.totalDueOperationCount = 0;
+        this.missedPeriodCount = 0;
+        this.totalJitterNanos = 0;
+        this.maxJitterNanos = 0;
+    }
+}
@@ -41,6 +41,7 @@ public class StandardSimulation implements Simulation {
     private final StandardEntityTypeRegistry entityTypeRegistry;
     private final TaskVerifier               taskVerifier;
     private final StandardSimulationProxy    simulationProxy;
+    private final boolean                    headless;
 
     private StandardTaskRunner          runningTask;
     private final StandardProgramRunner programRunner;
@@ -66,23 +67,58 @@ public class StandardSimulation implements Simulation {
             final StandardEntityTypeRegistry entityTypeRegistry, final StandardActionLog actionLog,
             final InspectionManager inspectionManager, final TaskVerifier taskVerifier
     ) {
+        this(playfield, simulationClock, entityTypeRegistry, actionLog, inspectionManager, taskVerifier, false);
+    }
+
+    /**
+     * Creates a new standard simulation with the given parameters.
+     *
+     * @param playfield
+     *     The playfield to use
+     * @param simulationClock
+     *     The simulation clock to use; must be headless if and only if the simulation is headless
+     * @param entityTypeRegistry
+     *     The entityTypeRegistry to use
+     * @param actionLog
+     *     The actionLog to use
+     * @param inspectionManager
+     *     The inspection manager to use
+     * @param taskVerifier
+     *     the task verifier to use to verify the task completion status
+     * @param headless
+     *     Whether the simulation is headless; see {@link Simulation#isHeadless()}
+     */
+    public StandardSimulation(
+            final StandardPlayfield playfield, final StandardSimulationClock simulationClock,
+            final StandardEntityTypeRegistry entityTypeRegistry, final StandardActionLog actionLog,
+            final InspectionManager inspectionManager, final TaskVerifier taskVerifier, final boolean headless
+    ) {
+        if (simulationClock.isHeadless() != headless)
+            throw new IllegalArgumentException("The given clock must be headless if and only if the simulation is headless.");
+        this.headless = headless;
         this.playfield = playfield;
         this.simulationClock = simulationClock;
         this.actionLog = actionLog;
         this.entityTypeRegistry = entityTypeRegistry;
         this.taskVerifier = taskVerifier;
 
-        this.programRunner = new StandardProgramRunner();
+        this.programRunner = new StandardProgramRunner(simulationClock);
 
         this.playfield.initialize(this);
+        this.simulationClock.initialize(this);
+        this.actionLog.initialize(this);
 
         if (taskVerifier != null) {
             taskVerifier.attachToSimulation(this);
         }
 
-        this.simulationProxy = new StandardSimulationProxy(
-                this, simulationClock, inspectionManager, entityTypeRegistry, playfield, taskVerifier
-        );
+        if (headless) {
+            this.simulationProxy = null;
+        } else {
+            this.simulationProxy = new StandardSimulationProxy(
+                    this, simulationClock, inspectionManager, entityTypeRegistry, playfield, taskVerifier
+            );
+        }
     }
 
     @Override
@@ -110,8 +146,14 @@ public class StandardSimulation implements Simulation {
         return this.entityTypeRegistry;
     }
 
+    @Override
+    public boolean isHeadless() {
+        return this.headless;
+    }
+
     @Override
     public SimulationProxy getSimulationProxyForWindow() {
+        if (this.headless) throw new IllegalStateException("A headless simulation has no simulation proxy.");
         return this.simulationProxy;
     }
 
@@ -133,6 +175,7 @@ public class StandardSimulation implements Simulation {
         }
         this.programRunner.stopAll();
         this.simulationClock.shutdown(); // stop the clock for good
+        this.actionLog.shutdown();
     }
 
     @Override
@@ -140,7 +183,7 @@ public class StandardSimulation implements Simulation {
         if (this.runningTask != null) {
             throw new IllegalStateException("Cannot run more than 1 Task per Simulation!");
         }
-        this.runningTask = new StandardTaskRunner(taskToRun, this);
+        this.runningTask = new StandardTaskRunner(taskToRun, this, this.simulationClock);
         this.runningTask.runTask();
     }
 
@@ -9,19 +9,26 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.TreeMap;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
+import de.unistuttgart.informatik.fius.icge.simulation.ClockMetrics;
+import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.SimulationClock;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.TimerAlreadyRunning;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
@@ -36,6 +43,16 @@ import de.unistuttgart.informatik.fius.icge.ui.exception.ListenerSetException;
  * @version 1.0
  */
 public class StandardSimulationClock implements SimulationClock {
+    /**
+     * The number of milliseconds the fast forward thread waits before checking again whether all actors are idle.
+     */
+    private static final long QUIESCENCE_POLL_MILLIS = 1;
+    /**
+     * The maximum number of periods a tick thread catching up may be behind. If it is further behind, the older periods
+     * are dropped, so a long pause does not cause a burst of ticks.
+     */
+    private static final int  MAX_CATCH_UP_PERIODS   = 2 * SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK;
+
     private final Object tickListenerLock = new Object();
 
     private final List<Function<Long, Boolean>> tickListeners;
@@ -43,11 +60,63 @@ public class StandardSimulationClock implements SimulationClock {
 
     private final Set<CompletableFuture<Void>> operationBoundaries;
 
-    private Consumer<Long>      animationTickListener;
-    private StateChangeListener stateChangeListener;
+    /**
+     * The scheduled operations which have not been released yet by the number of the tick they are scheduled for, in
+     * the order they were scheduled. Guarded by itself.
+     */
+    private final TreeMap<Long, List<PendingOperation>> scheduledOperations = new TreeMap<>();
+
+    private volatile Consumer<Long> animationTickListener;
+    private StateChangeListener     stateChangeListener;
+
+    private final StandardClockMetrics metrics = new StandardClockMetrics();
+
+    private WeakReference<Simulation> simulation;
+
+    private final ClockMode     mode;
+    private final boolean       headless;
+    private volatile TickPolicy tickPolicy       = TickPolicy.FIXED_DELAY;
+    private volatile boolean    parallelOperations;
+    private volatile long       busyActorTimeout = SimulationClock.DEFAULT_BUSY_ACTOR_TIMEOUT;
+
+    /**
+     * The thread producing the ticks; {@code null} if the clock is not running.
+     */
+    private volatile Thread tickThread;
+
+    /**
+     * Guards the render request below. The render thread waits on it for new render ticks.
+     */
+    private final Object renderLock = new Object();
+    private long         requestedRenderTick;
+    private boolean      renderRequested;
+    private Thread       renderThread;
 
-    private TimerTask   task;
-    private final Timer timer;
+    /**
+     * Guards the actor bookkeeping below and is notified whenever it changes.
+     */
+    private final Object      quiescenceLock = new Object();
+    private final Set<Thread> actors         = new HashSet<>();
+    private final Set<Thread> waitingActors  = new HashSet<>();
+    /**
+     * The actors blocked in {@link #awaitIdle(CompletableFuture)}.
+     */
+    private final Set<Thread> blockedActors  = new HashSet<>();
+    /**
+     * The actors which were busy for longer than the busy actor timeout and are not waited for until they schedule
+     * their next operation or block in {@link #awaitIdle(CompletableFuture)}.
+     */
+    private final Set<Thread> stalledActors  = new HashSet<>();
+    private int               pendingOperations;
+
+    /**
+     * The actors waiting for their first turn in deterministic mode, in the order they were created.
+     */
+    private final ArrayDeque<ActorTurn> actorTurns = new ArrayDeque<>();
+    /**
+     * The number of actors which are allowed to start, but have not registered yet.
+     */
+    private int                         startingActors;
 
     private volatile long tickCount;
 
@@ -65,15 +134,40 @@ public class StandardSimulationClock implements SimulationClock {
      */
     private volatile boolean shuttingDown;
 
-    private int period;
+    private volatile int period;
 
     /**
-     * Default constructor
+     * Default constructor creating a clock in {@link SimulationClock.ClockMode#REAL_TIME} mode
      */
     public StandardSimulationClock() {
+        this(ClockMode.REAL_TIME);
+    }
+
+    /**
+     * Create a new clock producing render ticks.
+     *
+     * @param mode
+     *     The mode in which the clock produces its ticks
+     */
+    public StandardSimulationClock(final ClockMode mode) {
+        this(mode, false);
+    }
+
+    /**
+     * Create a new clock.
+     *
+     * @param mode
+     *     The mode in which the clock produces its ticks
+     * @param headless
+     *     Whether the clock is used by a headless simulation; a headless clock only produces simulation ticks and does
+     *     not call the animation listener
+     */
+    public StandardSimulationClock(final ClockMode mode, final boolean headless) {
+        if (mode == null) throw new IllegalArgumentException("The given mode is null.");
+        this.mode = mode;
+        this.headless = headless;
         this.tickListeners = new ArrayList<>();
         this.postTickListeners = new ArrayList<>();
-        this.timer = new Timer("STM-TickTimer", true);
         this.tickCount = -1;
         this.period = SimulationClock.DEFAULT_RENDER_TICK_PERIOD;
         this.shuttingDown = false;
@@ -88,14 +182,15 @@ public class StandardSimulationClock implements SimulationClock {
         if (this.isRunning()) throw new TimerAlreadyRunning();
         if (this.shuttingDown) return;
 
-        this.task = new TimerTask() {
-
-            @Override
-            public void run() {
-                StandardSimulationClock.this.tick();
-            }
-        };
-        this.timer.schedule(this.task, 0, this.period);
+        final Thread thread;
+        if (this.mode == ClockMode.REAL_TIME) {
+            thread = new Thread(this::runRealTime, "STM-TickTimer");
+        } else {
+            thread = new Thread(this::runFastForward, "STM-FastForward");
+        }
+        thread.setDaemon(true);
+        this.tickThread = thread;
+        thread.start();
     }
 
     /**
@@ -103,10 +198,14 @@ public class StandardSimulationClock implements SimulationClock {
      * what you do use {@link SimulationClock#stop()}
      */
     public synchronized void stopInternal() {
-        if (this.isRunning()) {
-            this.task.cancel();
+        final Thread thread = this.tickThread;
+        this.tickThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        synchronized (this.quiescenceLock) {
+            this.quiescenceLock.notifyAll();
         }
-        this.task = null;
     }
 
     /**
@@ -127,18 +226,26 @@ public class StandardSimulationClock implements SimulationClock {
         if (this.shuttingDown) return;
         this.shuttingDown = true;
         this.stop();
+        this.metrics.unregisterMBean();
         for (final var boundary : Set.copyOf(this.operationBoundaries)) {
             boundary.cancel(true);
         }
+        synchronized (this.quiescenceLock) {
+            this.quiescenceLock.notifyAll();
+        }
+        synchronized (this.renderLock) {
+            this.renderLock.notifyAll();
+        }
     }
 
     @Override
     public synchronized void setPeriod(final int millis) {
         this.period = millis;
 
-        if (this.isRunning()) {
-            this.stop();
-            this.start();
+        //The tick thread calculates the next tick from the current period, so it just needs to wake up to use it.
+        final Thread thread = this.tickThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
         }
     }
 
@@ -154,7 +261,72 @@ public class StandardSimulationClock implements SimulationClock {
 
     @Override
     public boolean isRunning() {
-        return this.task != null;
+        return this.tickThread != null;
+    }
+
+    @Override
+    public void setTickPolicy(final TickPolicy policy) {
+        if (policy == null) throw new IllegalArgumentException("The given policy is null.");
+        this.tickPolicy = policy;
+    }
+
+    @Override
+    public TickPolicy getTickPolicy() {
+        return this.tickPolicy;
+    }
+
+    @Override
+    public void setParallelOperations(final boolean parallel) {
+        this.parallelOperations = parallel;
+    }
+
+    @Override
+    public boolean isParallelOperations() {
+        return this.parallelOperations;
+    }
+
+    @Override
+    public void setBusyActorTimeout(final long millis) {
+        if (millis < 0) throw new IllegalArgumentException("The given timeout is negative.");
+        this.busyActorTimeout = millis;
+    }
+
+    @Override
+    public long getBusyActorTimeout() {
+        return this.busyActorTimeout;
+    }
+
+    @Override
+    public ClockMode getClockMode() {
+        return this.mode;
+    }
+
+    /**
+     * @return whether this clock only produces simulation ticks, because it is used by a headless simulation
+     */
+    public boolean isHeadless() {
+        return this.headless;
+    }
+
+    /**
+     * @return the time between two ticks produced by the tick thread in real time mode
+     */
+    private long getTickPeriodNanos() {
+        final long periodMillis = this.headless ? this.getGameTickPeriod() : this.period;
+        return periodMillis * 1_000_000L;
+    }
+
+    @Override
+    public ClockMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Make the metrics of this clock available via JMX. They are removed again when the clock is shut down.
+     */
+    public void registerMetricsMBean() {
+        if (this.shuttingDown) return;
+        this.metrics.registerMBean();
     }
 
     @Override
@@ -175,6 +347,84 @@ public class StandardSimulationClock implements SimulationClock {
         this.stopInternal();
     }
 
+    @Override
+    public void advance(final long ticks) {
+        if (ticks < 0) throw new IllegalArgumentException("The number of ticks must be >= 0.");
+        this.driveSynchronously(unused -> false, ticks);
+    }
+
+    @Override
+    public boolean runUntil(final Predicate<Simulation> condition) {
+        return this.runUntil(condition, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean runUntil(final Predicate<Simulation> condition, final long maxTicks) {
+        if (condition == null) throw new IllegalArgumentException("The given condition is null.");
+        if (maxTicks < 0) throw new IllegalArgumentException("The number of ticks must be >= 0.");
+        return this.driveSynchronously(condition, maxTicks);
+    }
+
+    /**
+     * Produce simulation ticks on the calling thread until the condition holds or the given number of ticks has been
+     * produced. After each tick this waits until all actors are idle again.
+     *
+     * @param condition
+     *     The condition to check before the first tick and after each tick
+     * @param maxTicks
+     *     The maximum number of ticks to produce
+     * @return whether the condition holds
+     */
+    private boolean driveSynchronously(final Predicate<Simulation> condition, final long maxTicks) {
+        final Thread self = Thread.currentThread();
+        synchronized (this) {
+            if (this.isRunning()) throw new TimerAlreadyRunning();
+            if (this.shuttingDown) return false;
+            synchronized (this.quiescenceLock) {
+                if (this.actors.contains(self))
+                    throw new IllegalStateException("The clock can not be driven by a thread of a program or task.");
+            }
+            this.tickThread = self;
+        }
+        try {
+            final Simulation simulation = this.getSimulation();
+            for (long tick = 0; tick < maxTicks; tick++) {
+                if (condition.test(simulation)) return true;
+                if (this.shuttingDown || (this.tickThread != self)) return false;
+                synchronized (this.tickListenerLock) {
+                    this.skipToSimulationTick();
+                }
+                this.tick();
+                this.awaitQuiescence(self, false);
+            }
+            return condition.test(simulation);
+        } catch (final InterruptedException e) {
+            throw new UncheckedInterruptedException(e);
+        } finally {
+            synchronized (this) {
+                if (this.tickThread == self) {
+                    this.tickThread = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Initialize the clock for the given simulation
+     *
+     * @param simulation
+     *     the parent simulation
+     */
+    public void initialize(final Simulation simulation) {
+        this.simulation = new WeakReference<>(simulation);
+    }
+
+    private Simulation getSimulation() {
+        final Simulation result = this.simulation == null ? null : this.simulation.get();
+        if (result == null) throw new IllegalStateException("This clock is not part of any simulation.");
+        return result;
+    }
+
     @Override
     public synchronized void step() {
         if (this.isRunning()) throw new TimerAlreadyRunning();
@@ -191,17 +441,503 @@ public class StandardSimulationClock implements SimulationClock {
      * Process a tick
      */
     private void tick() {
+        this.tick(-1, true);
+    }
+
+    /**
+     * Process a tick
+     *
+     * @param scheduledStart
+     *     The time at which the tick should have started or -1 if the tick is not produced periodically
+     * @param animate
+     *     Whether to call the animation listener
+     */
+    private void tick(final long scheduledStart, final boolean animate) {
         synchronized (this.tickListenerLock) {
             //Don't process tick when shutting down.
             if (this.shuttingDown) return;
-            this.tickCount++;
-            if ((this.tickCount % SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) == 0) {
-                this.tickSimulation(this.tickCount / SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK);
+            final long start = System.nanoTime();
+            this.processTick(animate);
+            this.recordRenderTick(start, scheduledStart);
+        }
+    }
+
+    /**
+     * Process a tick while holding the tick listener lock
+     *
+     * @param animate
+     *     Whether to call the animation listener
+     */
+    private void processTick(final boolean animate) {
+        if (this.headless) {
+            this.skipToSimulationTick();
+        }
+        this.tickCount++;
+        if ((this.tickCount % SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) == 0) {
+            this.tickSimulation(this.tickCount / SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK);
+        }
+        //Don't continue to process tick when shutting down.
+        if (this.shuttingDown) return;
+        if (animate && !this.headless) {
+            this.requestRender(this.tickCount);
+        }
+    }
+
+    /**
+     * Record the metrics of a render tick. The jitter and missed periods are only measured for periodic ticks.
+     *
+     * @param start
+     *     The start of the tick
+     * @param scheduledStart
+     *     The time at which the tick should have started or -1 if the tick is not produced periodically
+     */
+    private void recordRenderTick(final long start, final long scheduledStart) {
+        final long duration = System.nanoTime() - start;
+        if (scheduledStart < 0) {
+            this.metrics.recordRenderTick(duration, -1, -1);
+        } else {
+            this.metrics.recordRenderTick(duration, Math.max(0, start - scheduledStart), this.getTickPeriodNanos());
+        }
+    }
+
+    /**
+     * The loop of the tick thread in real time mode.
+     * <p>
+     * The thread parks until the next tick is due. The next tick is calculated from the current period, so a changed
+     * period takes effect immediately. How the thread reacts to ticks which are late is determined by the
+     * {@link SimulationClock.TickPolicy}. The thread never catches up more than {@value #MAX_CATCH_UP_PERIODS} periods.
+     * </p>
+     */
+    private void runRealTime() {
+        final Thread self = Thread.currentThread();
+        //Make the first tick due immediately.
+        long base = System.nanoTime() - this.getTickPeriodNanos();
+        while (!this.shuttingDown && (this.tickThread == self)) {
+            final long periodNanos = this.getTickPeriodNanos();
+            long deadline = base + periodNanos;
+            final long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(this, deadline - now);
+                //Nobody should interrupt this thread; clear the flag so parking does not turn into spinning.
+                Thread.interrupted();
+                continue;
             }
-            //Don't continue to process tick when shutting down.
-            if (this.shuttingDown) return;
-            if (this.animationTickListener != null) {
-                this.animationTickListener.accept(this.tickCount);
+            final TickPolicy policy = this.tickPolicy;
+            final long maxBehindNanos = periodNanos * StandardSimulationClock.MAX_CATCH_UP_PERIODS;
+            if ((now - deadline) > maxBehindNanos) {
+                deadline = now - maxBehindNanos;
+            }
+            if (policy == TickPolicy.SKIP_RENDER_TICKS) {
+                deadline = this.skipOverdueRenderTicks(deadline, now, periodNanos);
+            }
+            final boolean animate = (policy != TickPolicy.DEGRADE_ANIMATION) || ((now - deadline) < periodNanos);
+            this.tick(deadline, animate);
+            base = (policy == TickPolicy.FIXED_DELAY) ? now : deadline;
+        }
+    }
+
+    /**
+     * Skip all render ticks which are overdue by at least one period, but never skip a simulation tick.
+     *
+     * @param deadline
+     *     The time the next tick was due
+     * @param now
+     *     The current time
+     * @param periodNanos
+     *     The period of the render ticks
+     * @return the time the first tick which is not skipped was due
+     */
+    private long skipOverdueRenderTicks(final long deadline, final long now, final long periodNanos) {
+        long result = deadline;
+        int skipped = 0;
+        synchronized (this.tickListenerLock) {
+            while (((now - result) >= periodNanos) && (((this.tickCount + 1) % SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) != 0)) {
+                this.tickCount++;
+                result += periodNanos;
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            this.metrics.recordSkippedRenderTicks(skipped);
+        }
+        return result;
+    }
+
+    /**
+     * Ask the render thread to call the animation listener for the given render tick. This never waits for the
+     * listener; if the render thread is still busy with an earlier tick, only the latest requested tick is rendered.
+     *
+     * @param renderTick
+     *     The number of the render tick
+     */
+    private void requestRender(final long renderTick) {
+        synchronized (this.renderLock) {
+            this.requestedRenderTick = renderTick;
+            this.renderRequested = true;
+            this.renderLock.notifyAll();
+        }
+    }
+
+    /**
+     * The loop of the render thread, which calls the animation listener outside of the tick processing.
+     * <p>
+     * In fast forward and deterministic mode the listener is called at most once per render tick period.
+     * </p>
+     */
+    private void runRenderLoop() {
+        long lastRenderNanos = System.nanoTime() - (this.period * 1_000_000L);
+        try {
+            while (!this.shuttingDown) {
+                if (this.mode != ClockMode.REAL_TIME) {
+                    final long waitNanos = (lastRenderNanos + (this.period * 1_000_000L)) - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+                    }
+                }
+                final long renderTick;
+                synchronized (this.renderLock) {
+                    while (!this.renderRequested && !this.shuttingDown) {
+                        this.renderLock.wait();
+                    }
+                    if (this.shuttingDown) return;
+                    renderTick = this.requestedRenderTick;
+                    this.renderRequested = false;
+                }
+                final Consumer<Long> listener = this.animationTickListener;
+                lastRenderNanos = System.nanoTime();
+                if (listener != null) {
+                    listener.accept(renderTick);
+                    this.metrics.recordAnimationListener(listener, System.nanoTime() - lastRenderNanos);
+                }
+            }
+        } catch (@SuppressWarnings("unused") final InterruptedException e) {
+            //The thread was interrupted from outside; just stop rendering.
+        }
+    }
+
+    /**
+     * Skip all render ticks up to the next simulation tick, so that the next tick is a simulation tick. Must be called
+     * while holding the tick listener lock.
+     */
+    private void skipToSimulationTick() {
+        this.tickCount = (Math.floorDiv(this.tickCount, SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK)
+                * SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK) + (SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK - 1);
+    }
+
+    /**
+     * The loop of the fast forward thread.
+     * <p>
+     * Each iteration skips the render ticks up to the next simulation tick, processes that tick and then waits until
+     * the simulation is quiescent.
+     * </p>
+     */
+    private void runFastForward() {
+        final Thread self = Thread.currentThread();
+        try {
+            while (!this.shuttingDown && (this.tickThread == self)) {
+                synchronized (this.tickListenerLock) {
+                    this.skipToSimulationTick();
+                }
+                this.tick();
+                this.awaitQuiescence(self, true);
+            }
+        } catch (@SuppressWarnings("unused") final InterruptedException e) {
+            //The thread was interrupted from outside; just stop producing ticks.
+        }
+    }
+
+    /**
+     * Wait until every actor is either waiting for a scheduled operation or blocked outside of the simulation and at
+     * least one operation is pending.
+     * <p>
+     * If no operation is pending when the actors become idle, nothing would happen in the next tick. In that case the
+     * next tick is produced after one game tick period, unless an operation gets scheduled earlier, so that an idle
+     * simulation does not spin.
+     * </p>
+     *
+     * <p>
+     * In deterministic mode the actors waiting for their first turn are started one after another before.
+     * </p>
+     *
+     * @param self
+     *     The thread producing the ticks
+     * @param waitWhenIdle
+     *     Whether to wait one game tick period if no operation is pending
+     * @throws InterruptedException
+     *     if the thread is interrupted while waiting
+     */
+    private void awaitQuiescence(final Thread self, final boolean waitWhenIdle) throws InterruptedException {
+        final long idleDeadline = System.nanoTime() + (this.getGameTickPeriod() * 1_000_000L);
+        synchronized (this.quiescenceLock) {
+            long busySince = System.nanoTime();
+            while (!this.shuttingDown && (this.tickThread == self)) {
+                if (!this.areActorsIdle()) {
+                    busySince = this.awaitBusyActors(busySince);
+                } else if (!this.actorTurns.isEmpty()) {
+                    this.grantNextTurn();
+                    busySince = System.nanoTime();
+                } else if ((this.pendingOperations > 0) || !waitWhenIdle) return;
+                else {
+                    final long remainingMillis = (idleDeadline - System.nanoTime()) / 1_000_000L;
+                    if (remainingMillis <= 0) return;
+                    this.quiescenceLock.wait(remainingMillis);
+                    busySince = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until no actor is doing work and every actor waiting for its first turn has been started.
+     * <p>
+     * Used in deterministic mode between two operations of the same tick.
+     * </p>
+     */
+    private void awaitActorsIdle() {
+        synchronized (this.quiescenceLock) {
+            try {
+                long busySince = System.nanoTime();
+                while (!this.shuttingDown) {
+                    if (!this.areActorsIdle()) {
+                        busySince = this.awaitBusyActors(busySince);
+                    } else if (!this.actorTurns.isEmpty()) {
+                        this.grantNextTurn();
+                        busySince = System.nanoTime();
+                    } else return;
+                }
+            } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wait shortly for the busy actors. Must be called while holding the quiescence lock.
+     * <p>
+     * If the actors have been busy for longer than the busy actor timeout, the busy actors are marked as stalled
+     * instead, so that an actor blocking outside of the clock does not stop the simulation forever.
+     * </p>
+     *
+     * @param busySince
+     *     The {@link System#nanoTime()} since when the actors have been busy
+     * @return the {@link System#nanoTime()} since when the actors have been busy for the next call
+     * @throws InterruptedException
+     *     if the thread is interrupted while waiting
+     */
+    private long awaitBusyActors(final long busySince) throws InterruptedException {
+        final long timeout = this.busyActorTimeout;
+        final long now = System.nanoTime();
+        if ((timeout == 0) || ((now - busySince) < (timeout * 1_000_000L))) {
+            this.quiescenceLock.wait(StandardSimulationClock.QUIESCENCE_POLL_MILLIS);
+            return busySince;
+        }
+        for (final Thread actor : this.actors) {
+            if (!this.waitingActors.contains(actor) && !this.blockedActors.contains(actor) && this.stalledActors.add(actor)) {
+                System.err.println(
+                        "The actor thread " + actor.getName() + " did not wait for the simulation clock within " + timeout
+                                + " ms. The clock does not wait for it until it schedules its next operation. Programs and tasks must only block through the simulation clock, for example with awaitIdle."
+                );
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Allow the next actor waiting for its first turn to start. Must be called while holding the quiescence lock.
+     */
+    private void grantNextTurn() {
+        final ActorTurn turn = this.actorTurns.poll();
+        turn.granted = true;
+        this.startingActors++;
+        this.quiescenceLock.notifyAll();
+    }
+
+    /**
+     * Must be called while holding the quiescence lock.
+     * <p>
+     * An actor is only idle while it waits for a scheduled operation or in {@link #awaitIdle(CompletableFuture)}. In
+     * every other state it is considered busy, even if its thread is blocked, unless it has been marked as stalled.
+     * </p>
+     *
+     * @return whether no actor is currently doing work
+     */
+    private boolean areActorsIdle() {
+        //An actor which was allowed to start but has not registered yet is about to do work.
+        if (this.startingActors > 0) return false;
+        for (final Thread actor : this.actors) {
+            if (!this.waitingActors.contains(actor) && !this.blockedActors.contains(actor) && !this.stalledActors.contains(actor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the turn of a new actor of the simulation, for example a program or a task.
+     * <p>
+     * Must be called on the thread starting the actor, before the actor is started, so that the order of the actors is
+     * the order in which they were started. In deterministic mode the actors are allowed to run in this order.
+     * </p>
+     *
+     * @return the turn to pass to {@link #registerActor(ActorTurn)}; must be passed to
+     *     {@link #cancelActorTurn(ActorTurn)} once the actor has ended or will never run
+     */
+    public ActorTurn createActorTurn() {
+        final ActorTurn turn = new ActorTurn();
+        synchronized (this.quiescenceLock) {
+            if (this.mode == ClockMode.DETERMINISTIC) {
+                this.actorTurns.add(turn);
+            } else {
+                turn.granted = true;
+                this.startingActors++;
+            }
+            this.quiescenceLock.notifyAll();
+        }
+        return turn;
+    }
+
+    /**
+     * Register the current thread as an actor of the simulation, for example a thread running a program or a task.
+     * <p>
+     * In fast forward and deterministic mode the clock does not start the next tick while an actor is busy. In
+     * deterministic mode this method blocks until it is the turn of the actor.
+     * </p>
+     * <p>
+     * Must be paired with a call to {@link #unregisterActor()} on the same thread.
+     * </p>
+     *
+     * @param turn
+     *     The turn created by {@link #createActorTurn()} for this actor
+     * @throws UncheckedInterruptedException
+     *     if the thread is interrupted while waiting for its turn
+     * @throws CancellationException
+     *     if the turn was cancelled before
+     */
+    public void registerActor(final ActorTurn turn) {
+        if (turn == null) throw new IllegalArgumentException("The given turn is null.");
+        synchronized (this.quiescenceLock) {
+            while (!turn.granted && !turn.cancelled && !this.shuttingDown) {
+                try {
+                    this.quiescenceLock.wait();
+                } catch (final InterruptedException e) {
+                    this.cancelActorTurnWhileLocked(turn);
+                    throw new UncheckedInterruptedException(e);
+                }
+            }
+            if (turn.cancelled) throw new CancellationException("The turn of this actor was cancelled.");
+            if (turn.granted) {
+                this.startingActors--;
+            } else {
+                //Shutting down; the turn will never be granted.
+                this.actorTurns.remove(turn);
+            }
+            turn.registered = true;
+            this.actors.add(Thread.currentThread());
+            this.quiescenceLock.notifyAll();
+        }
+    }
+
+    /**
+     * Cancel the given turn if its actor has not registered yet.
+     * <p>
+     * Must be called when an actor ends, no matter whether it ever ran. An actor which was cancelled before it could
+     * register would otherwise keep the clock waiting for it forever.
+     * </p>
+     *
+     * @param turn
+     *     The turn created by {@link #createActorTurn()} for the actor
+     */
+    public void cancelActorTurn(final ActorTurn turn) {
+        if (turn == null) throw new IllegalArgumentException("The given turn is null.");
+        synchronized (this.quiescenceLock) {
+            this.cancelActorTurnWhileLocked(turn);
+        }
+    }
+
+    /**
+     * Must be called while holding the quiescence lock.
+     *
+     * @param turn
+     *     The turn to cancel
+     */
+    private void cancelActorTurnWhileLocked(final ActorTurn turn) {
+        if (turn.registered || turn.cancelled) return;
+        turn.cancelled = true;
+        if (!this.actorTurns.remove(turn) && turn.granted) {
+            this.startingActors--;
+        }
+        this.quiescenceLock.notifyAll();
+    }
+
+    @Override
+    public void awaitIdle(final CompletableFuture<?> future) {
+        if (future == null) throw new IllegalArgumentException("The given future is null.");
+        final Thread current = Thread.currentThread();
+        final boolean[] completed = { false };
+        //The callback is run by the thread completing the future or by the tick thread waiting for it, so this thread
+        //counts as busy again before either of them continues.
+        final CompletableFuture<Void> unblocked = future.handle((result, throwable) -> {
+            synchronized (this.quiescenceLock) {
+                completed[0] = true;
+                this.blockedActors.remove(current);
+                this.quiescenceLock.notifyAll();
+            }
+            return null;
+        });
+        synchronized (this.quiescenceLock) {
+            if (!completed[0] && this.actors.contains(current)) {
+                this.blockedActors.add(current);
+                this.stalledActors.remove(current);
+                this.quiescenceLock.notifyAll();
+            }
+        }
+        unblocked.join();
+        future.join();
+    }
+
+    /**
+     * Unregister the current thread as an actor of the simulation.
+     *
+     * @see #registerActor(ActorTurn)
+     */
+    public void unregisterActor() {
+        synchronized (this.quiescenceLock) {
+            final Thread current = Thread.currentThread();
+            this.actors.remove(current);
+            this.waitingActors.remove(current);
+            this.blockedActors.remove(current);
+            this.stalledActors.remove(current);
+            this.quiescenceLock.notifyAll();
+        }
+    }
+
+    /**
+     * Must be called after the tick listener of the operation is registered. Otherwise the clock could skip the tick of
+     * the operation before it is able to release it.
+     *
+     * @param operation
+     *     the operation
+     */
+    private void operationScheduled(final PendingOperation operation) {
+        synchronized (this.quiescenceLock) {
+            if (operation.released) return;
+            operation.counted = true;
+            this.pendingOperations++;
+            if (this.actors.contains(operation.thread)) {
+                this.waitingActors.add(operation.thread);
+                this.stalledActors.remove(operation.thread);
+            }
+            this.quiescenceLock.notifyAll();
+        }
+    }
+
+    private void operationReleased(final PendingOperation operation) {
+        synchronized (this.quiescenceLock) {
+            if (operation.released) return;
+            operation.released = true;
+            if (operation.counted) {
+                this.pendingOperations--;
+                this.waitingActors.remove(operation.thread);
             }
         }
     }
@@ -213,25 +949,151 @@ public class StandardSimulationClock implements SimulationClock {
      *     The number of the simulation tick since the start of the clock.
      */
     private void tickSimulation(final long tickNumber) {
-        for (final var listener : List.copyOf(this.tickListeners)) {
+        final long start = System.nanoTime();
+        final List<PendingOperation> dueOperations = this.pollDueOperations(tickNumber);
+        this.runOperations(dueOperations);
+        final long operationsEnd = System.nanoTime();
+        //Don't continue to process tick when shutting down.
+        if (this.shuttingDown) return;
+
+        final boolean continueTick = this.callListeners(this.tickListeners, tickNumber);
+        final long tickListenersEnd = System.nanoTime();
+        if (continueTick) {
+            this.callListeners(this.postTickListeners, tickNumber);
+        }
+        final long end = System.nanoTime();
+        this.metrics.recordSimulationTick(
+                end - start, dueOperations.size(), operationsEnd - start, tickListenersEnd - operationsEnd, end - tickListenersEnd
+        );
+    }
+
+    /**
+     * Call all given listeners and remove the ones which do not want to continue to listen.
+     *
+     * @param listeners
+     *     The listeners to call
+     * @param tickNumber
+     *     The number of the simulation tick
+     * @return false if the processing was aborted because the clock is shutting down
+     */
+    private boolean callListeners(final List<Function<Long, Boolean>> listeners, final long tickNumber) {
+        if (listeners.isEmpty()) return true;
+        Set<Function<Long, Boolean>> finished = null;
+        for (final var listener : List.copyOf(listeners)) {
             //Don't continue to process tick when shutting down.
-            if (this.shuttingDown) return;
-            if (!listener.apply(tickNumber)) {
-                this.tickListeners.remove(listener);
+            if (this.shuttingDown) return false;
+            final long start = System.nanoTime();
+            final boolean continueListening = listener.apply(tickNumber);
+            this.metrics.recordListener(listener, System.nanoTime() - start);
+            if (!continueListening) {
+                if (finished == null) {
+                    finished = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                finished.add(listener);
             }
         }
+        if (finished != null) {
+            listeners.removeIf(finished::contains);
+        }
+        return true;
+    }
 
-        for (final var listener : List.copyOf(this.postTickListeners)) {
+    /**
+     * Remove all operations scheduled for the given tick or an earlier one from the queue.
+     *
+     * @param tickNumber
+     *     The number of the simulation tick
+     * @return the due operations in the order they should be released
+     */
+    private List<PendingOperation> pollDueOperations(final long tickNumber) {
+        synchronized (this.scheduledOperations) {
+            if (this.scheduledOperations.isEmpty() || (this.scheduledOperations.firstKey() > tickNumber)) return List.of();
+            final List<PendingOperation> due = new ArrayList<>();
+            while (!this.scheduledOperations.isEmpty() && (this.scheduledOperations.firstKey() <= tickNumber)) {
+                due.addAll(this.scheduledOperations.pollFirstEntry().getValue());
+            }
+            return due;
+        }
+    }
+
+    /**
+     * Release the given operations and wait until all of them have ended.
+     * <p>
+     * If parallel operations are enabled, all operations are released at once and run concurrently, so the tick only
+     * takes as long as the slowest operation.
+     * </p>
+     *
+     * @param operations
+     *     The operations to run
+     */
+    private void runOperations(final List<PendingOperation> operations) {
+        if (operations.isEmpty()) return;
+        if ((this.mode == ClockMode.DETERMINISTIC) || !this.parallelOperations) {
+            this.runOperationsInOrder(operations);
+            return;
+        }
+        final List<CompletableFuture<Void>> ends = new ArrayList<>(operations.size());
+        for (final PendingOperation operation : operations) {
+            this.operationReleased(operation);
+            ends.add(operation.endOfOperation);
+        }
+        //Release all operations first, so that none of them has to wait for another one to be released.
+        for (final PendingOperation operation : operations) {
+            operation.startOfOperation.complete(null);
+        }
+        try {
+            CompletableFuture.allOf(ends.toArray(new CompletableFuture<?>[0])).get();
+            for (final CompletableFuture<Void> end : ends) {
+                this.operationBoundaries.remove(end);
+            }
+        } catch (final InterruptedException e) {
+            e.printStackTrace();
+        } catch (final ExecutionException e) {
+            //The combined future fails if any end of operation was cancelled; when shutting down this is expected
+            if (!this.shuttingDown || !(e.getCause() instanceof CancellationException)) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Release the given operations one after another. In deterministic mode the actor of the previous operation must
+     * also have become idle again before the next operation is released, so that only one actor is running at a time.
+     *
+     * @param operations
+     *     The operations to run
+     */
+    private void runOperationsInOrder(final List<PendingOperation> operations) {
+        for (final PendingOperation operation : operations) {
             //Don't continue to process tick when shutting down.
             if (this.shuttingDown) return;
-            if (!listener.apply(tickNumber)) {
-                this.postTickListeners.remove(listener);
+            this.operationReleased(operation);
+            operation.startOfOperation.complete(null);
+            try {
+                operation.endOfOperation.get();
+                this.operationBoundaries.remove(operation.endOfOperation);
+            } catch (final InterruptedException e) {
+                e.printStackTrace();
+            } catch (final ExecutionException e) {
+                e.printStackTrace();
+            } catch (final CancellationException e) {
+                //When shutting down this is expected
+                if (!this.shuttingDown) {
+                    e.printStackTrace();
+                }
+            }
+            if (this.mode == ClockMode.DETERMINISTIC) {
+                this.awaitActorsIdle();
             }
         }
     }
 
     /**
      * Set the animation tick listener, that gets called every animation tick and is responsible for informing the UI.
+     * <p>
+     * The listener is called on a separate render thread, so a slow listener never delays the ticks. If the listener is
+     * still busy when new ticks are produced, it is only called again for the latest one.
+     * </p>
      *
      * @param listener
      *     the listener to set; use null to remove listener
@@ -242,6 +1104,18 @@ public class StandardSimulationClock implements SimulationClock {
         if ((this.animationTickListener == null) || (listener == null)) {
             this.animationTickListener = listener;
         } else throw new ListenerSetException();
+        if ((listener != null) && !this.headless) {
+            this.startRenderThread();
+        }
+    }
+
+    private void startRenderThread() {
+        synchronized (this.renderLock) {
+            if ((this.renderThread != null) || this.shuttingDown) return;
+            this.renderThread = new Thread(this::runRenderLoop, "STM-Render");
+            this.renderThread.setDaemon(true);
+            this.renderThread.start();
+        }
     }
 
     /**
@@ -300,24 +1174,11 @@ public class StandardSimulationClock implements SimulationClock {
         this.operationBoundaries.add(endOfOperation);
         final CompletableFuture<Void> startOfOperation = new CompletableFuture<>();
         this.operationBoundaries.add(startOfOperation);
-        this.registerTickListener(tickNumber -> {
-            if (tickNumber >= tick) {
-                startOfOperation.complete(null);
-                try {
-                    endOfOperation.get();
-                    this.operationBoundaries.remove(endOfOperation);
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                } catch (final CancellationException e) {
-                    //When shutting down this is expected
-                    if (!this.shuttingDown) {
-                        e.printStackTrace();
-                    }
-                }
-                return false;
-            }
-            return true;
-        });
+        final PendingOperation pending = new PendingOperation(tick, Thread.currentThread(), startOfOperation, endOfOperation);
+        synchronized (this.scheduledOperations) {
+            this.scheduledOperations.computeIfAbsent(tick, key -> new ArrayList<>()).add(pending);
+        }
+        this.operationScheduled(pending);
         try {
             startOfOperation.get();
             this.operationBoundaries.remove(startOfOperation);
@@ -326,6 +1187,26 @@ public class StandardSimulationClock implements SimulationClock {
         } catch (final ExecutionException e) {
             //Should not happen as this future does never execute but is simply completed manually.
             e.printStackTrace();
+        } finally {
+            if (!startOfOperation.isDone() || startOfOperation.isCancelled()) {
+                this.unschedule(pending);
+            }
+            this.operationReleased(pending);
+        }
+    }
+
+    /**
+     * Remove an operation, which will not be run, from the queue.
+     *
+     * @param operation
+     *     The operation to remove
+     */
+    private void unschedule(final PendingOperation operation) {
+        synchronized (this.scheduledOperations) {
+            final List<PendingOperation> operations = this.scheduledOperations.get(operation.tick);
+            if ((operations != null) && operations.remove(operation) && operations.isEmpty()) {
+                this.scheduledOperations.remove(operation.tick);
+            }
         }
     }
 
@@ -339,6 +1220,47 @@ public class StandardSimulationClock implements SimulationClock {
         this.scheduleOperationInTicks(1, endOfOperation);
     }
 
+    /**
+     * An operation waiting for its tick.
+     * <p>
+     * The flags are used to keep track of the idle actors in fast forward mode and are guarded by the quiescence lock.
+     * </p>
+     */
+    private static final class PendingOperation {
+        private final long                    tick;
+        private final Thread                  thread;
+        private final CompletableFuture<Void> startOfOperation;
+        private final CompletableFuture<Void> endOfOperation;
+        private boolean                       counted;
+        private boolean                       released;
+
+        private PendingOperation(
+                final long tick, final Thread thread, final CompletableFuture<Void> startOfOperation,
+                final CompletableFuture<Void> endOfOperation
+        ) {
+            this.tick = tick;
+            this.thread = thread;
+            this.startOfOperation = startOfOperation;
+            this.endOfOperation = endOfOperation;
+        }
+    }
+
+    /**
+     * The turn of an actor, created by {@link StandardSimulationClock#createActorTurn()}.
+     * <p>
+     * The flags are guarded by the quiescence lock of the clock.
+     * </p>
+     */
+    public static final class ActorTurn {
+        private boolean granted;
+        private boolean cancelled;
+        private boolean registered;
+
+        private ActorTurn() {
+            //Only created by the clock
+        }
+    }
+
     /**
      * The interface for a listener listening for simulation clock starts and stops. The listener is only informed when
      * the state change is caused from the public API, not from UI interaction.
@@ -178,14 +178,9 @@ public class StandardSimulationProxy implements SimulationProxy {
 
         this.gameWindow.getEntitySidebar().setSimulationTreeRootNode(this.playfield.getSimulationTree());
         this.gameWindow.getEntitySidebar().enableSimulationTree();
-        this.playfield.setSimulationTreeEntityAddedListener((node, entity) -> {
-            this.simualtionSidebarMap.put(node, entity);
-            this.gameWindow.getEntitySidebar().updateSimulationTree();
-        });
-        this.playfield.setSimulationTreeEntityRemovedListener(node -> {
-            this.simualtionSidebarMap.remove(node);
-            this.gameWindow.getEntitySidebar().updateSimulationTree();
-        });
+        this.playfield.setSimulationTreeEntityAddedListener(this.simualtionSidebarMap::put);
+        this.playfield.setSimulationTreeEntityRemovedListener(this.simualtionSidebarMap::remove);
+        this.playfield.setSimulationTreeChangedListener(() -> this.gameWindow.getEntitySidebar().updateSimulationTree());
 
         this.gameWindow.getEntitySidebar().disableEntityInspector();
 
@@ -207,6 +202,7 @@ public class StandardSimulationProxy implements SimulationProxy {
         this.playfield.removeDrawablesChangedListener();
         this.playfield.removeSimulationTreeEntityAddedListener();
         this.playfield.removeSimulationTreeEntityRemovedListener();
+        this.playfield.removeSimulationTreeChangedListener();
         this.entityTypeRegistry.removeEntityRegisteredListener();
 
         // remove gameWindow reference
@@ -0,0 +1,179 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+
+
+/**
+ * Prints logged actions to the console on a background thread.
+ * <p>
+ * The actions are put into a bounded queue and the writer thread formats and prints them in batches, so logging an
+ * action never waits for the console. If the queue is full, new actions are dropped and only counted; the writer prints
+ * a summary of the dropped actions as soon as it catches up. {@link #close()} prints everything still queued and stops
+ * the writer thread.
+ * </p>
+ * <p>
+ * An action whose description cannot be created is printed as a placeholder line, so it does not stop the writer.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class ActionConsoleWriter {
+    /** The number of entries the queue can hold. */
+    public static final int QUEUE_CAPACITY = 4096;
+    /** The maximum number of entries printed at once. */
+    public static final int MAX_BATCH_SIZE = 256;
+
+    /** The number of milliseconds {@link #close()} waits for room in the queue before checking the writer again */
+    private static final long CLOSE_POLL_MILLIS = 10;
+
+    /** The entry telling the writer thread to stop; compared by identity */
+    private static final List<Action> END = new ArrayList<>();
+
+    private final BlockingQueue<List<? extends Action>> queue = new ArrayBlockingQueue<>(ActionConsoleWriter.QUEUE_CAPACITY);
+
+    private final Object               droppedLock = new Object();
+    private final Map<String, Integer> dropped     = new LinkedHashMap<>();
+
+    private final Object     writerLock = new Object();
+    private volatile Thread  writer;
+    private volatile boolean closed;
+
+    /**
+     * Print the given actions. A single action is printed with its description, multiple actions are summarized by
+     * their type.
+     *
+     * @param actions
+     *     The actions to print; must not be modified afterwards
+     */
+    public void write(final List<? extends Action> actions) {
+        if (actions.isEmpty() || this.closed) return;
+        this.startWriter();
+        if (this.queue.offer(actions)) return;
+        synchronized (this.droppedLock) {
+            for (final Action action : actions) {
+                this.dropped.merge(action.getClass().getSimpleName(), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Print all queued actions and the summary of the dropped actions and stop the writer thread. Actions written
+     * afterwards are ignored.
+     */
+    public void close() {
+        final Thread thread;
+        synchronized (this.writerLock) {
+            if (this.closed) return;
+            this.closed = true;
+            thread = this.writer;
+        }
+        if (thread == null) return;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                // waits until the writer thread made room, so all entries queued before are printed, unless it died
+                while (
+                    thread.isAlive()
+                            && !this.queue.offer(ActionConsoleWriter.END, ActionConsoleWriter.CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS)
+                ) {
+                    // check again
+                }
+                thread.join();
+                break;
+            } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startWriter() {
+        if (this.writer != null) return;
+        synchronized (this.writerLock) {
+            if ((this.writer != null) || this.closed) return;
+            final Thread thread = new Thread(this::run, "ActionLog-Console");
+            thread.setDaemon(true);
+            thread.start();
+            this.writer = thread;
+        }
+    }
+
+    private void run() {
+        final List<List<? extends Action>> batch = new ArrayList<>(ActionConsoleWriter.MAX_BATCH_SIZE);
+        final StringBuilder output = new StringBuilder();
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(this.queue.take());
+            } catch (@SuppressWarnings("unused") final InterruptedException e) {
+                return;
+            }
+            this.queue.drainTo(batch, ActionConsoleWriter.MAX_BATCH_SIZE - 1);
+            for (final List<? extends Action> actions : batch) {
+                if (actions == ActionConsoleWriter.END) {
+                    end = true;
+                    break;
+                }
+                try {
+                    ActionConsoleWriter.format(actions, output);
+                } catch (final RuntimeException e) {
+                    output.append("Could not print ").append(actions.size()).append(" actions: ").append(e).append(System.lineSeparator());
+                }
+            }
+            batch.clear();
+            this.formatDropped(output);
+            System.out.print(output);
+            System.out.flush();
+            output.setLength(0);
+        }
+    }
+
+    private static void format(final List<? extends Action> actions, final StringBuilder output) {
+        if (actions.size() == 1) {
+            output.append(actions.get(0).getDescription()).append(System.lineSeparator());
+            return;
+        }
+        final Map<String, Integer> countsByType = new LinkedHashMap<>();
+        for (final Action action : actions) {
+            countsByType.merge(action.getClass().getSimpleName(), 1, Integer::sum);
+        }
+        output.append("Logged ").append(actions.size()).append(" actions:");
+        countsByType.forEach((type, count) -> output.append(' ').append(count).append("x ").append(type));
+        output.append(System.lineSeparator());
+    }
+
+    private void formatDropped(final StringBuilder output) {
+        final Map<String, Integer> droppedByType;
+        synchronized (this.droppedLock) {
+            if (this.dropped.isEmpty()) return;
+            droppedByType = new LinkedHashMap<>(this.dropped);
+            this.dropped.clear();
+        }
+        int total = 0;
+        for (final int count : droppedByType.values()) {
+            total += count;
+        }
+        output.append("Skipped printing ").append(total).append(" actions:");
+        droppedByType.forEach((type, count) -> output.append(' ').append(count).append("x ").append(type));
+        output.append(System.lineSeparator());
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * Publishes the actions of an {@link ActionStore} to subscribers in batches of one tick.
+ * <p>
+ * The publisher does not buffer any actions. It only tracks up to which row of the store the ticks are complete; a tick
+ * is complete when an action of a later tick is logged or when the tick ends. Every subscription has its own cursor
+ * into the store and reads the rows of the complete ticks from there, applies its filters to the type and entity
+ * columns of the store and passes the matching actions of one tick as one list to the subscriber. This happens on a
+ * thread of the publisher and only as long as the subscriber requested more lists, so the logging thread never waits
+ * for a subscriber, a slow subscriber never delays the others and a subscriber which falls behind only keeps an older
+ * cursor, but does not need any memory.
+ * </p>
+ * <p>
+ * A subscription which is still behind when the store is closed may fail with an {@link IllegalStateException}, if the
+ * actions it still has to read were moved to the spill file of the store.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class ActionPublisher {
+
+    private final ActionStore store;
+
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "ActionLog-Publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Guards the pending tick below; actions are appended to the store while holding it, so the rows are published in
+     * the order they were appended.
+     */
+    private final Object     tickLock = new Object();
+    private boolean          tickPending;
+    private long             pendingTick;
+    /** The number of rows of the store which belong to complete ticks */
+    private volatile int     completeRows;
+    /** Set after the last update of {@link #completeRows} */
+    private volatile boolean closed;
+
+    /**
+     * Create a new publisher for the actions of the given store.
+     *
+     * @param store
+     *     The store the published actions are appended to
+     * @throws IllegalArgumentException
+     *     if the given store is null
+     */
+    public ActionPublisher(final ActionStore store) {
+        if (store == null) throw new IllegalArgumentException("The given store is null.");
+        this.store = store;
+    }
+
+    /**
+     * Subscribe to the actions of the given type, which are appended to the store from now on.
+     *
+     * @param <T>
+     *     The generic type to publish the actions as
+     * @param entity
+     *     The entity whose actions should be published or null for the actions of all entities
+     * @param type
+     *     The type of the actions to publish
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param subscriber
+     *     The subscriber to publish the batches to
+     * @throws IllegalArgumentException
+     *     if the given type or subscriber is null
+     */
+    public <T extends Action> void subscribe(
+            final Entity entity, final Class<? extends T> type, final boolean includeSubclasses,
+            final Flow.Subscriber<? super List<T>> subscriber
+    ) {
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        if (subscriber == null) throw new IllegalArgumentException("The given subscriber is null.");
+        final Subscription<T> subscription;
+        synchronized (this.tickLock) {
+            subscription = new Subscription<>(subscriber, entity, type, includeSubclasses, this.store.size());
+            if (!this.closed) {
+                this.subscriptions.add(subscription);
+            }
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Append the given action to the store and publish it.
+     *
+     * @param action
+     *     The action to append
+     * @return the row of the action or -1 if it was not appended, because the store is full
+     * @throws IllegalArgumentException
+     *     if the given action is null
+     * @see ActionStore#append(Action)
+     */
+    public int append(final Action action) {
+        synchronized (this.tickLock) {
+            final int row = this.store.append(action);
+            if ((row < 0) || this.closed) return row;
+            if (this.tickPending && (action.getTickNumber() != this.pendingTick)) {
+                this.completeRowsBefore(row);
+            }
+            this.pendingTick = action.getTickNumber();
+            this.tickPending = true;
+            return row;
+        }
+    }
+
+    /**
+     * Publish the actions of the tick which just ended.
+     */
+    public void endTick() {
+        synchronized (this.tickLock) {
+            if (this.closed || !this.tickPending) return;
+            this.tickPending = false;
+            this.completeRowsBefore(this.store.size());
+        }
+    }
+
+    /**
+     * Publish all actions in the store and complete all subscriptions after their subscribers received them.
+     */
+    public void close() {
+        synchronized (this.tickLock) {
+            if (this.closed) return;
+            this.completeRows = Math.max(this.completeRows, this.store.size());
+            this.closed = true;
+        }
+        for (final Subscription<?> subscription : this.subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * @return the number of subscriptions, which are neither cancelled nor completed
+     */
+    int getSubscriptionCount() {
+        return this.subscriptions.size();
+    }
+
+    /**
+     * Mark the rows before the given one as complete and inform the subscriptions. Must be called while holding the
+     * tick lock.
+     */
+    private void completeRowsBefore(final int row) {
+        if (row <= this.completeRows) return;
+        this.completeRows = row;
+        for (final Subscription<?> subscription : this.subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * A subscription with its filters and its cursor into the store.
+     * <p>
+     * All calls of the subscriber are made by {@link #drain()}, which runs on one thread of the publisher at a time.
+     * </p>
+     *
+     * @param <T>
+     *     The type of the published actions
+     */
+    private class Subscription<T extends Action> implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<T>> subscriber;
+        private final Entity                           entity;
+        private final Class<? extends T>               type;
+        private final boolean                          includeSubclasses;
+
+        private final AtomicLong    demand  = new AtomicLong();
+        /** The number of signals which were not handled by {@link #drain()} yet */
+        private final AtomicInteger signals = new AtomicInteger();
+        private volatile boolean    cancelled;
+        private volatile Throwable  failure;
+
+        /** The next row to read; only used by {@link #drain()} */
+        private int     cursor;
+        private boolean subscribed;
+        private boolean done;
+
+        private Subscription(
+                final Flow.Subscriber<? super List<T>> subscriber, final Entity entity, final Class<? extends T> type,
+                final boolean includeSubclasses, final int cursor
+        ) {
+            this.subscriber = subscriber;
+            this.entity = entity;
+            this.type = type;
+            this.includeSubclasses = includeSubclasses;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                this.failure = new IllegalArgumentException("The number of requested lists must be positive.");
+            } else {
+                this.demand.getAndUpdate(current -> ((current + n) < 0) ? Long.MAX_VALUE : (current + n));
+            }
+            this.signal();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            ActionPublisher.this.subscriptions.remove(this);
+        }
+
+        /**
+         * Make sure {@link #drain()} runs after this call.
+         */
+        private void signal() {
+            if (this.signals.getAndIncrement() != 0) return;
+            try {
+                ActionPublisher.this.executor.execute(this::drain);
+            } catch (@SuppressWarnings("unused") final RejectedExecutionException e) {
+                this.signals.set(0);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    this.deliver();
+                } catch (final RuntimeException e) {
+                    this.fail(e);
+                }
+                missed = this.signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            if (this.done) return;
+            if (!this.subscribed) {
+                this.subscribed = true;
+                this.subscriber.onSubscribe(this);
+            }
+            if (this.cancelled) {
+                this.done = true;
+                return;
+            }
+            if (this.failure != null) {
+                this.fail(this.failure);
+                return;
+            }
+            // read closed before the complete rows, so all rows are known when it is set
+            final boolean closed = ActionPublisher.this.closed;
+            final int limit = ActionPublisher.this.completeRows;
+            while ((this.cursor < limit) && (this.demand.get() > 0) && !this.cancelled) {
+                final List<T> batch = this.nextBatch(limit);
+                if (!batch.isEmpty()) {
+                    this.demand.decrementAndGet();
+                    this.subscriber.onNext(batch);
+                }
+            }
+            if (closed && (this.cursor >= limit) && !this.cancelled) {
+                this.done = true;
+                ActionPublisher.this.subscriptions.remove(this);
+                this.subscriber.onComplete();
+            }
+        }
+
+        private void fail(final Throwable throwable) {
+            if (this.done) return;
+            this.done = true;
+            this.cancelled = true;
+            ActionPublisher.this.subscriptions.remove(this);
+            this.subscriber.onError(throwable);
+        }
+
+        /**
+         * Read the rows of the tick at the cursor and move the cursor behind them.
+         *
+         * @return the matching actions of that tick
+         */
+        private List<T> nextBatch(final int limit) {
+            final List<T> matching = new ArrayList<>();
+            this.cursor = ActionPublisher.this.store.readTick(this.cursor, limit, this.entity, this.type, this.includeSubclasses, matching);
+            return List.copyOf(matching);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * An append-only temporary file for chunks of an {@link ActionStore}, which are moved out of the heap.
+ * <p>
+ * Every chunk is written as its tick, type, entity, from, to and reference column one after another. The file is mapped
+ * into memory in regions of {@value #REGION_CHUNKS} chunks, so a long simulation does not need one mapping per chunk,
+ * and every chunk is written into and read from a slice of its region. The file and its directory are deleted when the
+ * file is closed or at the latest when the virtual machine exits. Some systems do not allow deleting a file while it is
+ * mapped, so the mappings should be dropped before closing the file.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class ActionSpillFile {
+    /** The offset of the tick column in a written chunk. */
+    public static final int TICK_OFFSET      = 0;
+    /** The offset of the type column in a written chunk. */
+    public static final int TYPE_OFFSET      = ActionSpillFile.TICK_OFFSET + (Long.BYTES * ActionStore.CHUNK_SIZE);
+    /** The offset of the entity column in a written chunk. */
+    public static final int ENTITY_OFFSET    = ActionSpillFile.TYPE_OFFSET + (Integer.BYTES * ActionStore.CHUNK_SIZE);
+    /** The offset of the from column in a written chunk. */
+    public static final int FROM_OFFSET      = ActionSpillFile.ENTITY_OFFSET + (Integer.BYTES * ActionStore.CHUNK_SIZE);
+    /** The offset of the to column in a written chunk. */
+    public static final int TO_OFFSET        = ActionSpillFile.FROM_OFFSET + (Long.BYTES * ActionStore.CHUNK_SIZE);
+    /** The offset of the reference column in a written chunk. */
+    public static final int REFERENCE_OFFSET = ActionSpillFile.TO_OFFSET + (Long.BYTES * ActionStore.CHUNK_SIZE);
+    /** The size of a written chunk. */
+    public static final int CHUNK_BYTES      = ActionSpillFile.REFERENCE_OFFSET + (Integer.BYTES * ActionStore.CHUNK_SIZE);
+    /** The number of chunks in one mapped region of the file. */
+    public static final int REGION_CHUNKS    = 256;
+
+    private final Path        directory;
+    private final Path        file;
+    private final FileChannel channel;
+    /** The region the next chunk is written to; null if a new region has to be mapped */
+    private MappedByteBuffer  region;
+    private int               chunksInRegion;
+    private long              length;
+
+    /**
+     * Create a new spill file in a new temporary directory.
+     *
+     * @throws IOException
+     *     if the file cannot be created
+     */
+    public ActionSpillFile() throws IOException {
+        this.directory = Files.createTempDirectory("icge-actions");
+        this.file = this.directory.resolve("actions.bin");
+        // files registered later are deleted first
+        this.directory.toFile().deleteOnExit();
+        this.file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Append a chunk to this file.
+     *
+     * @param ticks
+     *     The tick column of the chunk
+     * @param types
+     *     The type column of the chunk
+     * @param entities
+     *     The entity column of the chunk
+     * @param from
+     *     The from column of the chunk
+     * @param to
+     *     The to column of the chunk
+     * @param references
+     *     The reference column of the chunk
+     * @return a read-only buffer of the written chunk, which is a slice of the mapped region of the chunk
+     * @throws IOException
+     *     if mapping fails
+     */
+    public synchronized ByteBuffer append(
+            final long[] ticks, final int[] types, final int[] entities, final long[] from, final long[] to, final int[] references
+    ) throws IOException {
+        if ((this.region == null) || (this.chunksInRegion == ActionSpillFile.REGION_CHUNKS)) {
+            // a writable mapping extends the file to the end of the region
+            this.region = this.channel
+                    .map(FileChannel.MapMode.READ_WRITE, this.length, (long) ActionSpillFile.CHUNK_BYTES * ActionSpillFile.REGION_CHUNKS);
+            this.chunksInRegion = 0;
+        }
+        final int start = this.chunksInRegion * ActionSpillFile.CHUNK_BYTES;
+        final ByteBuffer region = this.region.duplicate();
+        region.position(start);
+        region.limit(start + ActionSpillFile.CHUNK_BYTES);
+        final ByteBuffer chunk = region.slice();
+
+        final ByteBuffer buffer = chunk.duplicate();
+        buffer.position(ActionSpillFile.TICK_OFFSET);
+        buffer.asLongBuffer().put(ticks);
+        buffer.position(ActionSpillFile.TYPE_OFFSET);
+        buffer.asIntBuffer().put(types);
+        buffer.position(ActionSpillFile.ENTITY_OFFSET);
+        buffer.asIntBuffer().put(entities);
+        buffer.position(ActionSpillFile.FROM_OFFSET);
+        buffer.asLongBuffer().put(from);
+        buffer.position(ActionSpillFile.TO_OFFSET);
+        buffer.asLongBuffer().put(to);
+        buffer.position(ActionSpillFile.REFERENCE_OFFSET);
+        buffer.asIntBuffer().put(references);
+
+        this.chunksInRegion++;
+        this.length += ActionSpillFile.CHUNK_BYTES;
+        return chunk.asReadOnlyBuffer();
+    }
+
+    /**
+     * Close this file and delete it.
+     * <p>
+     * If the file cannot be deleted yet, for example because a buffer returned by {@link #append} is still mapped, it
+     * is deleted when the virtual machine exits.
+     * </p>
+     *
+     * @throws IOException
+     *     if closing fails
+     */
+    public synchronized void close() throws IOException {
+        this.region = null;
+        this.channel.close();
+        try {
+            Files.deleteIfExists(this.file);
+            Files.deleteIfExists(this.directory);
+        } catch (@SuppressWarnings("unused") final IOException e) {
+            // both are still registered to be deleted on exit
+        }
+    }
+}
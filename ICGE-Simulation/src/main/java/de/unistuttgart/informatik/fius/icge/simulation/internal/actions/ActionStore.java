@@ -0,0 +1,955 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityCollectAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDespawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDropAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntitySpawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityStepAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTurnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.CollectableEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * An append-only store for actions, which keeps the actions in primitive columns instead of keeping the action objects.
+ * <p>
+ * Every logged action is a row with the columns tick, type id, entity id, from, to and reference. The columns are split
+ * into chunks of {@value #CHUNK_SIZE} rows, so the store never needs to copy already stored rows when it grows. Types,
+ * entities and other referenced objects are stored only once in a table and the rows only contain their index.
+ * Positions and directions are packed into the from and to columns.
+ * </p>
+ * <p>
+ * Only the exact action types of this simulation are stored in columns. Actions of other types (including subclasses of
+ * the known types) are kept as objects in the reference table.
+ * </p>
+ * <p>
+ * If a limit is given, full chunks which are no longer needed on the heap are moved to an {@link ActionSpillFile} by a
+ * background thread. All queries still return them until the store is closed. The row indices of the types and entities
+ * only keep the rows on the heap and the indices of the moved chunks which contain rows of them, so queries only read
+ * these chunks of the file.
+ * </p>
+ * <p>
+ * Closing the store deletes the spill file. Afterwards every read of a row which was moved to it, also through a list
+ * returned before, fails with an {@link IllegalStateException} naming the row, while the rows on the heap can still be
+ * read. Rows at or after {@link #getFirstHeapRow()} are always on the heap.
+ * </p>
+ * <p>
+ * A store holds at most {@link Integer#MAX_VALUE} actions. Further actions are rejected.
+ * </p>
+ * <p>
+ * Action objects are only created when a stored action is requested. The lists returned by this store are read-only
+ * views of the rows which existed when the list was requested and create the action of a row each time it is accessed.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class ActionStore {
+    /** The number of rows in one chunk of a column. */
+    public static final int CHUNK_SIZE = 1 << 12;
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK  = ActionStore.CHUNK_SIZE - 1;
+
+    private static final int NONE = -1;
+
+    /** The largest length of an array, which can be allocated safely. */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * How the actions of a type are stored.
+     */
+    private enum Encoding {
+        /** Kept as object in the reference table */
+        OBJECT,
+        /** {@link EntityStepAction}: positions in from and to */
+        STEP,
+        /** {@link EntityTeleportAction}: positions in from and to */
+        TELEPORT,
+        /** {@link EntityTurnAction}: direction ordinals in from and to */
+        TURN,
+        /** {@link EntitySpawnAction}: playfield as reference, position in to */
+        SPAWN,
+        /** {@link EntityDespawnAction}: playfield as reference */
+        DESPAWN,
+        /** {@link EntityCollectAction}: collected entity as reference, positions in from and to */
+        COLLECT,
+        /** {@link EntityDropAction}: dropped entity as reference, positions in from and to */
+        DROP
+    }
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private HeapChunk         currentChunk;
+    private int               size;
+    private long              latestTick;
+
+    private final List<Class<? extends Action>>         types          = new ArrayList<>();
+    private final List<Encoding>                        typeEncodings  = new ArrayList<>();
+    private final Map<Class<? extends Action>, Integer> encodedTypeIds = new HashMap<>();
+    private final Map<Class<? extends Action>, Integer> objectTypeIds  = new HashMap<>();
+    private final List<RowIndex>                        rowsOfType     = new ArrayList<>();
+
+    private final List<Entity>         entities     = new ArrayList<>();
+    private final Map<Entity, Integer> entityIds    = new HashMap<>();
+    private final List<RowIndex>       rowsOfEntity = new ArrayList<>();
+    private final List<Object>         references   = new ArrayList<>();
+    private final Map<Object, Integer> referenceIds = new HashMap<>();
+
+    /** The number of rows of each type id */
+    private long[]             countOfType         = new long[8];
+    /** The number of rows of each type id, by entity id */
+    private final List<long[]> countOfTypeOfEntity = new ArrayList<>();
+
+    private final long      maxHeapTicks;
+    private final int       maxHeapActions;
+    private ExecutorService spiller;
+    private ActionSpillFile spillFile;
+    private boolean         spillFailed;
+    /** The index of the next chunk to hand to the spiller */
+    private int             nextChunkToSpill;
+    /** The first row which is still on the heap; the rows before are only indexed by their chunk */
+    private int             firstHeapRow;
+    private boolean         closed;
+
+    /**
+     * Create a new store which keeps all actions on the heap.
+     */
+    public ActionStore() {
+        this(0, 0);
+    }
+
+    /**
+     * Create a new store which moves older actions to a temporary file.
+     * <p>
+     * Whenever a chunk is full, the oldest chunks are moved to the file as long as the chunks after them still contain
+     * the actions of the last {@code maxHeapTicks} ticks or at least {@code maxHeapActions} actions. Actions which are
+     * kept as objects and the tables of types, entities and references stay on the heap.
+     * </p>
+     *
+     * @param maxHeapTicks
+     *     The number of ticks whose actions should be kept on the heap or {@code 0} for no limit
+     * @param maxHeapActions
+     *     The number of actions which should be kept on the heap or {@code 0} for no limit
+     * @throws IllegalArgumentException
+     *     if a limit is negative
+     */
+    public ActionStore(final long maxHeapTicks, final int maxHeapActions) {
+        if (maxHeapTicks < 0) throw new IllegalArgumentException("The given tick limit is negative.");
+        if (maxHeapActions < 0) throw new IllegalArgumentException("The given action limit is negative.");
+        this.maxHeapTicks = maxHeapTicks;
+        this.maxHeapActions = maxHeapActions;
+    }
+
+    /**
+     * Append the given action to this store.
+     *
+     * @param action
+     *     The action to append
+     * @return the row of the action or -1 if it was not appended, because the store already holds
+     *     {@link Integer#MAX_VALUE} actions
+     * @throws IllegalArgumentException
+     *     if the given action is null
+     */
+    public synchronized int append(final Action action) {
+        if (action == null) throw new IllegalArgumentException("The given action is null.");
+        if (this.size == Integer.MAX_VALUE) return ActionStore.NONE;
+        if ((this.size & ActionStore.CHUNK_MASK) == 0) {
+            this.spillChunks();
+            this.currentChunk = new HeapChunk();
+            this.chunks.add(this.currentChunk);
+        }
+        final int row = this.size;
+        final int offset = row & ActionStore.CHUNK_MASK;
+        this.latestTick = Math.max(this.latestTick, action.getTickNumber());
+
+        int entityId = ActionStore.NONE;
+        if (action instanceof EntityAction) {
+            final Entity entity = ((EntityAction) action).getEntity();
+            if (entity != null) {
+                entityId = this.entityIdOf(entity);
+                this.rowsOfEntity.get(entityId).add(row);
+            }
+        }
+
+        final int typeId = this.typeIdOf(action);
+        this.rowsOfType.get(typeId).add(row);
+        this.countOfType[typeId]++;
+        if (entityId != ActionStore.NONE) {
+            long[] counts = this.countOfTypeOfEntity.get(entityId);
+            if (counts.length <= typeId) {
+                counts = Arrays.copyOf(counts, this.countOfType.length);
+                this.countOfTypeOfEntity.set(entityId, counts);
+            }
+            counts[typeId]++;
+        }
+        long from = 0;
+        long to = 0;
+        int reference = ActionStore.NONE;
+        switch (this.typeEncodings.get(typeId)) {
+            case STEP:
+                from = ActionStore.pack(((EntityStepAction) action).from());
+                to = ActionStore.pack(((EntityStepAction) action).to());
+                break;
+            case TELEPORT:
+                from = ActionStore.pack(((EntityTeleportAction) action).from());
+                to = ActionStore.pack(((EntityTeleportAction) action).to());
+                break;
+            case TURN:
+                from = ((EntityTurnAction) action).from().ordinal();
+                to = ((EntityTurnAction) action).to().ordinal();
+                break;
+            case SPAWN:
+                reference = this.referenceIdOf(((EntitySpawnAction) action).getPlayfield());
+                to = ActionStore.pack(((EntitySpawnAction) action).getPosition());
+                break;
+            case DESPAWN:
+                reference = this.referenceIdOf(((EntityDespawnAction) action).getPlayfield());
+                break;
+            case COLLECT:
+                reference = this.referenceIdOf(((EntityCollectAction) action).getCollectedEntity());
+                from = ActionStore.pack(((EntityCollectAction) action).getCollectorPosition());
+                to = ActionStore.pack(((EntityCollectAction) action).getCollectedEntityPosition());
+                break;
+            case DROP:
+                reference = this.referenceIdOf(((EntityDropAction) action).getDroppedEntity());
+                from = ActionStore.pack(((EntityDropAction) action).getDropperPosition());
+                to = ActionStore.pack(((EntityDropAction) action).getDroppedEntityPosition());
+                break;
+            default:
+                // the action itself is never used as a reference by another row, so it does not need to be interned
+                reference = this.references.size();
+                this.references.add(action);
+                break;
+        }
+
+        final HeapChunk chunk = this.currentChunk;
+        chunk.ticks[offset] = action.getTickNumber();
+        chunk.types[offset] = typeId;
+        chunk.entities[offset] = entityId;
+        chunk.from[offset] = from;
+        chunk.to[offset] = to;
+        chunk.references[offset] = reference;
+        this.size++;
+        return row;
+    }
+
+    /**
+     * @return the number of actions in this store
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the first row which was not moved to the spill file; all rows from this row on can be read after the
+     *     store was closed
+     */
+    public synchronized int getFirstHeapRow() {
+        return this.firstHeapRow;
+    }
+
+    /**
+     * Create the action stored in the given row.
+     *
+     * @param row
+     *     The row to get the action of
+     * @return the action
+     * @throws IndexOutOfBoundsException
+     *     if the given row does not exist
+     * @throws IllegalStateException
+     *     if the row was moved to the spill file and the store was closed
+     */
+    public synchronized Action get(final int row) {
+        if ((row < 0) || (row >= this.size)) throw new IndexOutOfBoundsException("No action in row " + row + ".");
+        final Chunk chunk = this.chunks.get(row >>> ActionStore.CHUNK_SHIFT);
+        if (chunk == ClosedChunk.INSTANCE) throw ClosedChunk.closed(row);
+        final int offset = row & ActionStore.CHUNK_MASK;
+        final long tick = chunk.tick(offset);
+        final int typeId = chunk.type(offset);
+        final int entityId = chunk.entity(offset);
+        final long from = chunk.from(offset);
+        final long to = chunk.to(offset);
+        final int reference = chunk.reference(offset);
+
+        final Entity entity = entityId == ActionStore.NONE ? null : this.entities.get(entityId);
+        switch (this.typeEncodings.get(typeId)) {
+            case STEP:
+                return new EntityStepAction(tick, entity, ActionStore.unpack(from), ActionStore.unpack(to));
+            case TELEPORT:
+                return new EntityTeleportAction(tick, entity, ActionStore.unpack(from), ActionStore.unpack(to));
+            case TURN:
+                return new EntityTurnAction(tick, entity, ActionStore.DIRECTIONS[(int) from], ActionStore.DIRECTIONS[(int) to]);
+            case SPAWN:
+                return new EntitySpawnAction(tick, entity, (Playfield) this.references.get(reference), ActionStore.unpack(to));
+            case DESPAWN:
+                return new EntityDespawnAction(tick, entity, (Playfield) this.references.get(reference));
+            case COLLECT:
+                return new EntityCollectAction(
+                        tick, entity, (CollectableEntity) this.references.get(reference), ActionStore.unpack(from), ActionStore.unpack(to)
+                );
+            case DROP:
+                return new EntityDropAction(
+                        tick, entity, (CollectableEntity) this.references.get(reference), ActionStore.unpack(from), ActionStore.unpack(to)
+                );
+            default:
+                return (Action) this.references.get(reference);
+        }
+    }
+
+    /**
+     * Read the matching actions of the tick of the given row, starting at that row. Only the actions of the rows whose
+     * type and entity columns match are created.
+     *
+     * @param <T>
+     *     The generic type to return the actions as
+     * @param start
+     *     The first row to read
+     * @param limit
+     *     The row to stop reading at, even if the tick continues
+     * @param entity
+     *     The entity whose actions match or null for the actions of all entities
+     * @param type
+     *     The type of the matching actions
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @param matching
+     *     The list to add the matching actions to
+     * @return the row after the last row read
+     * @throws IndexOutOfBoundsException
+     *     if the given start row does not exist or the limit is larger than the size of this store
+     * @throws IllegalStateException
+     *     if a row was moved to the spill file and the store was closed
+     */
+    synchronized <T extends Action> int readTick(
+            final int start, final int limit, final Entity entity, final Class<? extends T> type, final boolean includeSubclasses,
+            final List<? super T> matching
+    ) {
+        if ((start < 0) || (start >= limit) || (limit > this.size)) throw new IndexOutOfBoundsException("No action in row " + start + ".");
+        final boolean[] matchingTypes = this.matchingTypes(type, includeSubclasses);
+        final Integer entityId = entity == null ? null : this.entityIds.get(entity);
+        final boolean anyEntity = entity == null;
+        final long tick = this.get(start).getTickNumber();
+        int row = start;
+        while (row < limit) {
+            final Chunk chunk = this.chunks.get(row >>> ActionStore.CHUNK_SHIFT);
+            if (chunk == ClosedChunk.INSTANCE) throw ClosedChunk.closed(row);
+            final int offset = row & ActionStore.CHUNK_MASK;
+            if (chunk.tick(offset) != tick) {
+                break;
+            }
+            if (matchingTypes[chunk.type(offset)] && (anyEntity || ((entityId != null) && (chunk.entity(offset) == entityId)))) {
+                //The row was selected by the type of its action, so the action is of the requested type.
+                @SuppressWarnings("unchecked")
+                final T action = (T) this.get(row);
+                matching.add(action);
+            }
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * Get all stored actions.
+     *
+     * @return a view of all actions currently in this store in the order they were appended
+     */
+    public synchronized List<Action> getAll() {
+        return new RowList<>(this, null, 0, this.size);
+    }
+
+    /**
+     * Get all stored actions of the given type.
+     *
+     * @param <T>
+     *     The generic type to return the actions as
+     * @param type
+     *     The type of the actions to get
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return a view of all matching actions in the order they were appended
+     */
+    public synchronized <T extends Action> List<T> getOfType(final Class<? extends T> type, final boolean includeSubclasses) {
+        final boolean[] matchingTypes = this.matchingTypes(type, includeSubclasses);
+        final RowIndex rows = new RowIndex();
+        // only the chunks of the rows which were moved to the spill file are indexed
+        final boolean[] spilledChunks = new boolean[this.nextChunkToSpill];
+        for (int typeId = 0; typeId < matchingTypes.length; typeId++) {
+            if (!matchingTypes[typeId]) {
+                continue;
+            }
+            final RowIndex rowsOfType = this.rowsOfType.get(typeId);
+            for (int i = 0; i < rowsOfType.spilledChunkCount; i++) {
+                spilledChunks[rowsOfType.spilledChunks[i]] = true;
+            }
+        }
+        for (int chunkIndex = 0; chunkIndex < spilledChunks.length; chunkIndex++) {
+            if (!spilledChunks[chunkIndex]) {
+                continue;
+            }
+            final Chunk chunk = this.chunks.get(chunkIndex);
+            for (int offset = 0; offset < ActionStore.CHUNK_SIZE; offset++) {
+                if (matchingTypes[chunk.type(offset)]) {
+                    rows.add((chunkIndex << ActionStore.CHUNK_SHIFT) | offset);
+                }
+            }
+        }
+        final int firstHeapIndex = rows.size;
+        int matchingTypeCount = 0;
+        for (int typeId = 0; typeId < matchingTypes.length; typeId++) {
+            if (!matchingTypes[typeId]) {
+                continue;
+            }
+            final RowIndex rowsOfType = this.rowsOfType.get(typeId);
+            for (int i = 0; i < rowsOfType.size; i++) {
+                rows.add(rowsOfType.rows[i]);
+            }
+            matchingTypeCount++;
+        }
+        if (matchingTypeCount > 1) {
+            // the rows of each type are in order, but the rows of different types are interleaved
+            Arrays.sort(rows.rows, firstHeapIndex, rows.size);
+        }
+        return new RowList<>(this, rows.rows, 0, rows.size);
+    }
+
+    /**
+     * Get all stored actions of the given type caused by the given entity.
+     *
+     * @param <T>
+     *     The generic type to return the actions as
+     * @param entity
+     *     The entity to get the actions for
+     * @param type
+     *     The type of the actions to get
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return a view of all matching actions in the order they were appended
+     */
+    public synchronized <T extends Action> List<T> getOfTypeOfEntity(
+            final Entity entity, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        final Integer entityId = this.entityIds.get(entity);
+        if (entityId == null) return List.of();
+        final RowIndex rowsOfEntity = this.rowsOfEntity.get(entityId);
+        final boolean[] matchingTypes = this.matchingTypes(type, includeSubclasses);
+        final RowIndex rows = new RowIndex();
+        // only the chunks of the rows which were moved to the spill file are indexed
+        for (int i = 0; i < rowsOfEntity.spilledChunkCount; i++) {
+            final int chunkIndex = rowsOfEntity.spilledChunks[i];
+            final Chunk chunk = this.chunks.get(chunkIndex);
+            for (int offset = 0; offset < ActionStore.CHUNK_SIZE; offset++) {
+                if ((chunk.entity(offset) == entityId) && matchingTypes[chunk.type(offset)]) {
+                    rows.add((chunkIndex << ActionStore.CHUNK_SHIFT) | offset);
+                }
+            }
+        }
+        for (int i = 0; i < rowsOfEntity.size; i++) {
+            final int row = rowsOfEntity.rows[i];
+            if (matchingTypes[this.chunks.get(row >>> ActionStore.CHUNK_SHIFT).type(row & ActionStore.CHUNK_MASK)]) {
+                rows.add(row);
+            }
+        }
+        return new RowList<>(this, rows.rows, 0, rows.size);
+    }
+
+    /**
+     * Get all actions appended since the action with the given sequence number. The sequence number of an action is the
+     * number of actions appended before it.
+     *
+     * @param sequenceNumber
+     *     The sequence number of the first action to get
+     * @return a view of all actions with the given or a higher sequence number in the order they were appended
+     * @throws IllegalArgumentException
+     *     if the given sequence number is negative
+     */
+    public synchronized List<Action> getSince(final long sequenceNumber) {
+        if (sequenceNumber < 0) throw new IllegalArgumentException("The given sequence number is negative.");
+        if (sequenceNumber >= this.size) return List.of();
+        return new RowList<>(this, null, (int) sequenceNumber, this.size - (int) sequenceNumber);
+    }
+
+    /**
+     * Count the stored actions of the given type.
+     *
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return the number of matching actions
+     */
+    public synchronized long countOfType(final Class<? extends Action> type, final boolean includeSubclasses) {
+        return ActionStore.sumMatching(this.countOfType, this.matchingTypes(type, includeSubclasses));
+    }
+
+    /**
+     * Count the stored actions caused by the given entity.
+     *
+     * @param entity
+     *     The entity to count the actions of
+     * @return the number of matching actions
+     */
+    public synchronized long countOfEntity(final Entity entity) {
+        final Integer entityId = this.entityIds.get(entity);
+        if (entityId == null) return 0;
+        long sum = 0;
+        for (final long count : this.countOfTypeOfEntity.get(entityId)) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Count the stored actions of the given type caused by the given entity.
+     *
+     * @param entity
+     *     The entity to count the actions of
+     * @param type
+     *     The type of the actions to count
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return the number of matching actions
+     */
+    public synchronized long countOfTypeOfEntity(final Entity entity, final Class<? extends Action> type, final boolean includeSubclasses) {
+        final Integer entityId = this.entityIds.get(entity);
+        if (entityId == null) return 0;
+        return ActionStore.sumMatching(this.countOfTypeOfEntity.get(entityId), this.matchingTypes(type, includeSubclasses));
+    }
+
+    private static long sumMatching(final long[] countOfType, final boolean[] matchingTypes) {
+        long sum = 0;
+        for (int typeId = 0; (typeId < matchingTypes.length) && (typeId < countOfType.length); typeId++) {
+            if (matchingTypes[typeId]) {
+                sum += countOfType[typeId];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Stop moving chunks to the spill file and delete it.
+     * <p>
+     * The mappings of the chunks which were already moved are dropped before, so the file can also be deleted on
+     * systems which do not allow deleting mapped files. Reading these actions afterwards fails with an
+     * {@link IllegalStateException}.
+     * </p>
+     */
+    public synchronized void close() {
+        if ((this.spiller == null) || this.closed) return;
+        this.spillFailed = true;
+        for (int chunkIndex = 0; chunkIndex < this.nextChunkToSpill; chunkIndex++) {
+            if (this.chunks.get(chunkIndex) instanceof MappedChunk) {
+                this.chunks.set(chunkIndex, ClosedChunk.INSTANCE);
+            }
+        }
+        this.closed = true;
+        this.spiller.execute(() -> {
+            try {
+                if (this.spillFile != null) {
+                    this.spillFile.close();
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        });
+        this.spiller.shutdown();
+    }
+
+    /**
+     * Hand all full chunks, which are no longer needed on the heap, to the spiller.
+     */
+    private void spillChunks() {
+        if (((this.maxHeapTicks == 0) && (this.maxHeapActions == 0)) || this.spillFailed) return;
+        final int fullChunks = this.size >>> ActionStore.CHUNK_SHIFT;
+        while ((this.nextChunkToSpill < fullChunks) && this.isSpillable(this.nextChunkToSpill)) {
+            if (this.spiller == null) {
+                this.spiller = Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "ActionLog-Spiller");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            final int chunkIndex = this.nextChunkToSpill++;
+            final HeapChunk chunk = (HeapChunk) this.chunks.get(chunkIndex);
+            this.spiller.execute(() -> this.spill(chunkIndex, chunk));
+        }
+    }
+
+    private boolean isSpillable(final int chunkIndex) {
+        final long rowsAfterChunk = this.size - ((chunkIndex + 1L) << ActionStore.CHUNK_SHIFT);
+        if ((this.maxHeapActions > 0) && (rowsAfterChunk >= this.maxHeapActions)) return true;
+        final long lastTickOfChunk = this.chunks.get(chunkIndex).tick(ActionStore.CHUNK_MASK);
+        return (this.maxHeapTicks > 0) && (lastTickOfChunk < (this.latestTick - this.maxHeapTicks));
+    }
+
+    /**
+     * Write the given chunk to the spill file and replace it with the mapped file. Runs on the spiller.
+     */
+    private void spill(final int chunkIndex, final HeapChunk chunk) {
+        final ByteBuffer buffer;
+        try {
+            synchronized (this) {
+                if (this.spillFailed) return;
+            }
+            if (this.spillFile == null) {
+                this.spillFile = new ActionSpillFile();
+            }
+            // a full chunk is never modified again, so it can be read without holding the lock
+            buffer = this.spillFile.append(chunk.ticks, chunk.types, chunk.entities, chunk.from, chunk.to, chunk.references);
+        } catch (final IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                // keep this and all following chunks on the heap
+                this.spillFailed = true;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (this.closed) return;
+            this.chunks.set(chunkIndex, new MappedChunk(buffer));
+            this.firstHeapRow = (chunkIndex + 1) << ActionStore.CHUNK_SHIFT;
+            for (final RowIndex rows : this.rowsOfType) {
+                rows.spillBefore(this.firstHeapRow, chunkIndex);
+            }
+            for (final RowIndex rows : this.rowsOfEntity) {
+                rows.spillBefore(this.firstHeapRow, chunkIndex);
+            }
+        }
+    }
+
+    private boolean[] matchingTypes(final Class<?> type, final boolean includeSubclasses) {
+        final boolean[] matching = new boolean[this.types.size()];
+        for (int typeId = 0; typeId < matching.length; typeId++) {
+            final Class<?> storedType = this.types.get(typeId);
+            matching[typeId] = includeSubclasses ? type.isAssignableFrom(storedType) : type.equals(storedType);
+        }
+        return matching;
+    }
+
+    private int typeIdOf(final Action action) {
+        final Class<? extends Action> type = action.getClass();
+        final Encoding encoding = ActionStore.encodingOf(action);
+        final Map<Class<? extends Action>, Integer> ids = encoding == Encoding.OBJECT ? this.objectTypeIds : this.encodedTypeIds;
+        final Integer id = ids.get(type);
+        if (id != null) return id;
+        final int newId = this.types.size();
+        this.types.add(type);
+        this.typeEncodings.add(encoding);
+        this.rowsOfType.add(new RowIndex());
+        if (newId == this.countOfType.length) {
+            this.countOfType = Arrays.copyOf(this.countOfType, newId * 2);
+        }
+        ids.put(type, newId);
+        return newId;
+    }
+
+    private int entityIdOf(final Entity entity) {
+        final Integer id = this.entityIds.get(entity);
+        if (id != null) return id;
+        final int newId = this.entities.size();
+        this.entities.add(entity);
+        this.rowsOfEntity.add(new RowIndex());
+        this.countOfTypeOfEntity.add(new long[this.countOfType.length]);
+        this.entityIds.put(entity, newId);
+        return newId;
+    }
+
+    private int referenceIdOf(final Object reference) {
+        return this.referenceIds.computeIfAbsent(reference, r -> {
+            this.references.add(r);
+            return this.references.size() - 1;
+        });
+    }
+
+    /**
+     * Get the encoding for the given action. Actions which miss a value needed for their encoding are kept as object.
+     */
+    private static Encoding encodingOf(final Action action) {
+        final Class<?> type = action.getClass();
+        if (type == EntityStepAction.class) {
+            final EntityStepAction step = (EntityStepAction) action;
+            if ((step.from() != null) && (step.to() != null)) return Encoding.STEP;
+        } else if (type == EntityTeleportAction.class) {
+            final EntityTeleportAction teleport = (EntityTeleportAction) action;
+            if ((teleport.from() != null) && (teleport.to() != null)) return Encoding.TELEPORT;
+        } else if (type == EntityTurnAction.class) {
+            final EntityTurnAction turn = (EntityTurnAction) action;
+            if ((turn.from() != null) && (turn.to() != null)) return Encoding.TURN;
+        } else if (type == EntitySpawnAction.class) {
+            final EntitySpawnAction spawn = (EntitySpawnAction) action;
+            if ((spawn.getPlayfield() != null) && (spawn.getPosition() != null)) return Encoding.SPAWN;
+        } else if (type == EntityDespawnAction.class) {
+            if (((EntityDespawnAction) action).getPlayfield() != null) return Encoding.DESPAWN;
+        } else if (type == EntityCollectAction.class) {
+            final EntityCollectAction collect = (EntityCollectAction) action;
+            if (
+                (collect.getCollectedEntity() != null) && (collect.getCollectorPosition() != null)
+                        && (collect.getCollectedEntityPosition() != null)
+            ) return Encoding.COLLECT;
+        } else if (type == EntityDropAction.class) {
+            final EntityDropAction drop = (EntityDropAction) action;
+            if ((drop.getDroppedEntity() != null) && (drop.getDropperPosition() != null) && (drop.getDroppedEntityPosition() != null))
+                return Encoding.DROP;
+        }
+        return Encoding.OBJECT;
+    }
+
+    private static long pack(final Position position) {
+        return (((long) position.getX()) << 32) | (position.getY() & 0xFFFFFFFFL);
+    }
+
+    private static Position unpack(final long packed) {
+        return new Position((int) (packed >> 32), (int) packed);
+    }
+
+    /**
+     * Get the next length for an array which is full.
+     */
+    private static int grow(final int length) {
+        if (length == ActionStore.MAX_ARRAY_LENGTH) throw new OutOfMemoryError("The row index is too large.");
+        return (int) Math.min(length * 2L, ActionStore.MAX_ARRAY_LENGTH);
+    }
+
+    /**
+     * A growable list of row numbers on the heap and of the indices of the spilled chunks which contained rows of it.
+     */
+    private static class RowIndex {
+        private int[] rows          = new int[8];
+        private int   size;
+        private int[] spilledChunks = new int[0];
+        private int   spilledChunkCount;
+
+        private void add(final int row) {
+            if (this.size == this.rows.length) {
+                this.rows = Arrays.copyOf(this.rows, ActionStore.grow(this.size));
+            }
+            this.rows[this.size++] = row;
+        }
+
+        /**
+         * Remove the rows before the given row, which are all in the given chunk, and remember the chunk instead.
+         */
+        private void spillBefore(final int row, final int chunkIndex) {
+            int removed = 0;
+            while ((removed < this.size) && (this.rows[removed] < row)) {
+                removed++;
+            }
+            if (removed == 0) return;
+            System.arraycopy(this.rows, removed, this.rows, 0, this.size - removed);
+            this.size -= removed;
+            if (this.spilledChunkCount == this.spilledChunks.length) {
+                this.spilledChunks = Arrays.copyOf(this.spilledChunks, Math.max(4, ActionStore.grow(this.spilledChunkCount)));
+            }
+            this.spilledChunks[this.spilledChunkCount++] = chunkIndex;
+        }
+    }
+
+    /**
+     * The columns of a chunk of rows.
+     */
+    private interface Chunk {
+        long tick(int offset);
+
+        int type(int offset);
+
+        int entity(int offset);
+
+        long from(int offset);
+
+        long to(int offset);
+
+        int reference(int offset);
+    }
+
+    /**
+     * A chunk on the heap.
+     */
+    private static class HeapChunk implements Chunk {
+        private final long[] ticks      = new long[ActionStore.CHUNK_SIZE];
+        private final int[]  types      = new int[ActionStore.CHUNK_SIZE];
+        private final int[]  entities   = new int[ActionStore.CHUNK_SIZE];
+        private final long[] from       = new long[ActionStore.CHUNK_SIZE];
+        private final long[] to         = new long[ActionStore.CHUNK_SIZE];
+        private final int[]  references = new int[ActionStore.CHUNK_SIZE];
+
+        @Override
+        public long tick(final int offset) {
+            return this.ticks[offset];
+        }
+
+        @Override
+        public int type(final int offset) {
+            return this.types[offset];
+        }
+
+        @Override
+        public int entity(final int offset) {
+            return this.entities[offset];
+        }
+
+        @Override
+        public long from(final int offset) {
+            return this.from[offset];
+        }
+
+        @Override
+        public long to(final int offset) {
+            return this.to[offset];
+        }
+
+        @Override
+        public int reference(final int offset) {
+            return this.references[offset];
+        }
+    }
+
+    /**
+     * A chunk in the spill file.
+     */
+    private static class MappedChunk implements Chunk {
+        private final ByteBuffer buffer;
+
+        private MappedChunk(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public long tick(final int offset) {
+            return this.buffer.getLong(ActionSpillFile.TICK_OFFSET + (offset * Long.BYTES));
+        }
+
+        @Override
+        public int type(final int offset) {
+            return this.buffer.getInt(ActionSpillFile.TYPE_OFFSET + (offset * Integer.BYTES));
+        }
+
+        @Override
+        public int entity(final int offset) {
+            return this.buffer.getInt(ActionSpillFile.ENTITY_OFFSET + (offset * Integer.BYTES));
+        }
+
+        @Override
+        public long from(final int offset) {
+            return this.buffer.getLong(ActionSpillFile.FROM_OFFSET + (offset * Long.BYTES));
+        }
+
+        @Override
+        public long to(final int offset) {
+            return this.buffer.getLong(ActionSpillFile.TO_OFFSET + (offset * Long.BYTES));
+        }
+
+        @Override
+        public int reference(final int offset) {
+            return this.buffer.getInt(ActionSpillFile.REFERENCE_OFFSET + (offset * Integer.BYTES));
+        }
+    }
+
+    /**
+     * A chunk which was in the spill file before the store was closed.
+     */
+    private static final class ClosedChunk implements Chunk {
+        private static final ClosedChunk INSTANCE = new ClosedChunk();
+
+        private static IllegalStateException closed() {
+            return new IllegalStateException("The action was moved to the spill file, which was deleted when the action log was closed.");
+        }
+
+        private static IllegalStateException closed(final int row) {
+            return new IllegalStateException(
+                    "The action in row " + row + " was moved to the spill file, which was deleted when the action log was closed."
+            );
+        }
+
+        @Override
+        public long tick(final int offset) {
+            throw ClosedChunk.closed();
+        }
+
+        @Override
+        public int type(final int offset) {
+            throw ClosedChunk.closed();
+        }
+
+        @Override
+        public int entity(final int offset) {
+            throw ClosedChunk.closed();
+        }
+
+        @Override
+        public long from(final int offset) {
+            throw ClosedChunk.closed();
+        }
+
+        @Override
+        public long to(final int offset) {
+            throw ClosedChunk.closed();
+        }
+
+        @Override
+        public int reference(final int offset) {
+            throw ClosedChunk.closed();
+        }
+    }
+
+    /**
+     * A read-only view of some rows of a store, which creates the action of a row each time it is accessed.
+     *
+     * @param <T>
+     *     The type of the actions in the rows
+     */
+    private static class RowList<T> extends AbstractList<T> implements RandomAccess {
+        private final ActionStore store;
+        /** The rows or null for consecutive rows from start */
+        private final int[]       rows;
+        private final int         start;
+        private final int         size;
+
+        private RowList(final ActionStore store, final int[] rows, final int start, final int size) {
+            this.store = store;
+            this.rows = rows;
+            this.start = start;
+            this.size = size;
+        }
+
+        @Override
+        public T get(final int index) {
+            if ((index < 0) || (index >= this.size)) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            //The rows were selected by the type of their action, so the action is of the requested type.
+            @SuppressWarnings("unchecked")
+            final T action = (T) this.store.get(this.rows == null ? this.start + index : this.rows[index]);
+            return action;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+}
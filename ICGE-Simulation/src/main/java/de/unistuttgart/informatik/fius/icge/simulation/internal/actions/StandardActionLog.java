@@ -9,86 +9,177 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Flow;
 
-import de.unistuttgart.informatik.fius.icge.simulation.MultiTypedList;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.ActionLog;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulation;
 
 
 /**
  * The standard implementation of {@link ActionLog}.
+ * <p>
+ * The actions are kept in an {@link ActionStore}, so all returned lists are in the order the actions were logged and
+ * create the action objects only when they are accessed.
+ * </p>
+ * <p>
+ * The console output is printed by an {@link ActionConsoleWriter}, so logging an action never waits for the console.
+ * Subscribers are served by an {@link ActionPublisher}.
+ * </p>
  *
  * @author Tim Neumann
  */
 public class StandardActionLog implements ActionLog {
 
-    private final Object actionsLock       = new Object();
-    private final Object entityActionsLock = new Object();
+    private final ActionStore         store;
+    private final ActionConsoleWriter consoleWriter = new ActionConsoleWriter();
+    private final ActionPublisher     publisher;
 
-    private final MultiTypedList<Action> actions = new MultiTypedList<>();
+    private boolean          consoleLog = true;
+    private volatile boolean fullWarningPrinted;
 
-    private final Map<Entity, MultiTypedList<EntityAction>> entityActions = new HashMap<>();
+    /**
+     * Create a new action log which keeps all actions in memory.
+     */
+    public StandardActionLog() {
+        this.store = new ActionStore();
+        this.publisher = new ActionPublisher(this.store);
+    }
+
+    /**
+     * Create a new action log which keeps only the newer actions in memory and moves older ones to a temporary file.
+     *
+     * @param maxHeapTicks
+     *     The number of ticks whose actions should be kept in memory or {@code 0} for no limit
+     * @param maxHeapActions
+     *     The number of actions which should be kept in memory or {@code 0} for no limit
+     * @see ActionStore#ActionStore(long, int)
+     */
+    public StandardActionLog(final long maxHeapTicks, final int maxHeapActions) {
+        this.store = new ActionStore(maxHeapTicks, maxHeapActions);
+        this.publisher = new ActionPublisher(this.store);
+    }
+
+    /**
+     * Initialize the action log for the given simulation
+     *
+     * @param simulation
+     *     the parent simulation
+     */
+    public void initialize(final StandardSimulation simulation) {
+        simulation.getSimulationClock().registerPostTickListener(count -> {
+            this.publisher.endTick();
+            return true;
+        });
+    }
 
-    private boolean consoleLog = true;
+    /**
+     * Complete all subscriptions after publishing the pending actions, print the pending console output and delete the
+     * temporary file.
+     */
+    public void shutdown() {
+        this.publisher.close();
+        this.consoleWriter.close();
+        this.store.close();
+    }
 
     @Override
     public List<Action> getAllActions() {
-        synchronized (this.actionsLock) {
-            return this.actions.get(Action.class, true);
-        }
+        return this.store.getAll();
     }
 
     @Override
     public <T extends Action> List<T> getActionsOfType(final Class<? extends T> type, final boolean includeSubclasses) {
-        synchronized (this.actionsLock) {
-            return this.actions.get(type, includeSubclasses);
-        }
+        return this.store.getOfType(type, includeSubclasses);
     }
 
     @Override
     public List<EntityAction> getAllActionsOfEntity(final Entity entity) {
-        synchronized (this.entityActionsLock) {
-            final MultiTypedList<EntityAction> list = this.entityActions.get(entity);
-            if (list == null) return Collections.emptyList();
-            return list.get(EntityAction.class, true);
-        }
+        return this.store.getOfTypeOfEntity(entity, EntityAction.class, true);
     }
 
     @Override
     public <T extends EntityAction> List<T> getActionsOfTypeOfEntity(
             final Entity entity, final Class<? extends T> type, final boolean includeSubclasses
     ) {
-        synchronized (this.entityActionsLock) {
-            final MultiTypedList<EntityAction> list = this.entityActions.get(entity);
-            if (list == null) return Collections.emptyList();
-            return list.get(type, includeSubclasses);
-        }
+        return this.store.getOfTypeOfEntity(entity, type, includeSubclasses);
+    }
+
+    @Override
+    public long countActionsOfType(final Class<? extends Action> type, final boolean includeSubclasses) {
+        return this.store.countOfType(type, includeSubclasses);
+    }
+
+    @Override
+    public long countActionsOfEntity(final Entity entity) {
+        return this.store.countOfEntity(entity);
+    }
+
+    @Override
+    public long countActionsOfTypeOfEntity(final Entity entity, final Class<? extends EntityAction> type, final boolean includeSubclasses) {
+        return this.store.countOfTypeOfEntity(entity, type, includeSubclasses);
+    }
+
+    @Override
+    public long getNextSequenceNumber() {
+        return this.store.size();
+    }
+
+    @Override
+    public List<Action> actionsSince(final long sequenceNumber) {
+        return this.store.getSince(sequenceNumber);
+    }
+
+    @Override
+    public <T extends Action> void subscribe(
+            final Class<? extends T> type, final boolean includeSubclasses, final Flow.Subscriber<? super List<T>> subscriber
+    ) {
+        this.publisher.subscribe(null, type, includeSubclasses, subscriber);
+    }
+
+    @Override
+    public <T extends EntityAction> void subscribe(
+            final Entity entity, final Class<? extends T> type, final boolean includeSubclasses,
+            final Flow.Subscriber<? super List<T>> subscriber
+    ) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        this.publisher.subscribe(entity, type, includeSubclasses, subscriber);
     }
 
     @Override
     public void logAction(final Action actionToLog) {
-        if (actionToLog instanceof EntityAction) {
-            final EntityAction entityAction = ((EntityAction) actionToLog);
-            final Entity entity = entityAction.getEntity();
-            synchronized (this.entityActionsLock) {
-                if (!this.entityActions.containsKey(entity)) {
-                    this.entityActions.put(entity, new MultiTypedList<>());
-                }
-                this.entityActions.get(entity).add(entityAction);
-            }
+        if (!this.append(actionToLog)) return;
+        if (this.consoleLog) {
+            this.consoleWriter.write(List.of(actionToLog));
         }
-        synchronized (this.actionsLock) {
-            this.actions.add(actionToLog);
+    }
+
+    @Override
+    public void logActions(final List<? extends Action> actionsToLog) {
+        if (actionsToLog.isEmpty()) return;
+        for (final Action action : actionsToLog) {
+            if (!this.append(action)) return;
         }
         if (this.consoleLog) {
-            System.out.println(actionToLog.getDescription());
+            this.consoleWriter.write(List.copyOf(actionsToLog));
+        }
+    }
+
+    /**
+     * Append the given action to the store and publish it. If the store is full, a warning is printed once.
+     *
+     * @return whether the action was appended
+     */
+    private boolean append(final Action action) {
+        if (this.publisher.append(action) >= 0) return true;
+        if (!this.fullWarningPrinted) {
+            this.fullWarningPrinted = true;
+            System.err.println("The action log is full. Further actions are not logged.");
         }
+        return false;
     }
 
     @Override
@@ -30,6 +30,7 @@ public class StandardEntityTypeRegistry implements EntityTypeRegistry {
 
     private final Map<String, Supplier<? extends Entity>> typeToEntityFactory = new HashMap<>();
     private final Map<String, String>                     typeToTextureHandle = new HashMap<>();
+    private final Map<Class<?>, String>                   classToType         = new HashMap<>();
 
     private EntityRegisteredListener entityRegisteredListener;
 
@@ -59,10 +60,12 @@ public class StandardEntityTypeRegistry implements EntityTypeRegistry {
         if ((textureHandle == null) || textureHandle.equals(""))
             throw new IllegalArgumentException("Texture handle cannot be null or empty!");
         if (entityFactory == null) throw new IllegalArgumentException("Entity factory cannot be null!");
-        if (entityFactory.get() == null) throw new IllegalArgumentException("Unable to instantiate a new entity!");
+        final Entity testEntity = entityFactory.get();
+        if (testEntity == null) throw new IllegalArgumentException("Unable to instantiate a new entity!");
         if (this.typeToEntityFactory.containsKey(typeName)) throw new ElementExistsException();
         this.typeToEntityFactory.put(typeName, entityFactory);
         this.typeToTextureHandle.put(typeName, textureHandle);
+        this.classToType.putIfAbsent(testEntity.getClass(), typeName);
 
         if (this.entityRegisteredListener != null) {
             this.entityRegisteredListener.entityWasRegistered(typeName, textureHandle);
@@ -88,6 +91,12 @@ public class StandardEntityTypeRegistry implements EntityTypeRegistry {
         return entityFactory.get();
     }
 
+    @Override
+    public synchronized String getTypeNameOfEntity(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("Entity cannot be null!");
+        return this.classToType.get(entity.getClass());
+    }
+
     /**
      * Set an entity selector listener that gets informed about all entity types added.
      *
@@ -0,0 +1,144 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * A {@link DataInput} reading from a {@link ByteBuffer}, for example a memory mapped file.
+ * <p>
+ * The buffer must use big endian byte order, like {@link java.io.DataOutput}.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class ByteBufferDataInput implements DataInput {
+    private final ByteBuffer buffer;
+
+    /**
+     * Create a new data input reading from the current position of the given buffer.
+     *
+     * @param buffer
+     *     The buffer to read from
+     */
+    public ByteBufferDataInput(final ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("The given buffer is null.");
+        this.buffer = buffer;
+    }
+
+    private void require(final int bytes) throws EOFException {
+        if (this.buffer.remaining() < bytes) throw new EOFException();
+    }
+
+    @Override
+    public void readFully(final byte[] b) throws IOException {
+        this.readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(final byte[] b, final int off, final int len) throws IOException {
+        this.require(len);
+        this.buffer.get(b, off, len);
+    }
+
+    @Override
+    public int skipBytes(final int n) throws IOException {
+        final int skipped = Math.max(0, Math.min(n, this.buffer.remaining()));
+        this.buffer.position(this.buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return this.readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        this.require(Byte.BYTES);
+        return this.buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return this.readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        this.require(Short.BYTES);
+        return this.buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return this.readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        this.require(Character.BYTES);
+        return this.buffer.getChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        this.require(Integer.BYTES);
+        return this.buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        this.require(Long.BYTES);
+        return this.buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        this.require(Float.BYTES);
+        return this.buffer.getFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        this.require(Double.BYTES);
+        return this.buffer.getDouble();
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (!this.buffer.hasRemaining()) return null;
+        final StringBuilder line = new StringBuilder();
+        while (this.buffer.hasRemaining()) {
+            final char c = (char) (this.buffer.get() & 0xFF);
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (this.buffer.hasRemaining() && (this.buffer.get(this.buffer.position()) == '\n')) {
+                    this.buffer.get();
+                }
+                break;
+            }
+            line.append(c);
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
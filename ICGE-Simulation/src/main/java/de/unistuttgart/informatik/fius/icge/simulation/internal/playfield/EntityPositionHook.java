@@ -0,0 +1,87 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * The hook through which the {@link StandardPlayfield} informs a {@link BasicEntity} about its current position.
+ * <p>
+ * The method receiving the position is package-private in {@link BasicEntity}, so that nothing but the playfield can
+ * call it. {@link BasicEntity} installs the {@link Updater} forwarding to it when its class is initialized.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public final class EntityPositionHook {
+
+    private static volatile Updater updater;
+
+    private EntityPositionHook() {
+        // hide constructor
+    }
+
+    /**
+     * Install the updater which forwards position updates to a {@link BasicEntity}.
+     * <p>
+     * This is only called by {@link BasicEntity}.
+     * </p>
+     *
+     * @param newUpdater
+     *     The updater to install; must <b>not</b> be <b>null</b>
+     * @throws IllegalArgumentException
+     *     if the given updater is null
+     * @throws IllegalStateException
+     *     if an updater is already installed
+     */
+    public static synchronized void install(final Updater newUpdater) {
+        if (newUpdater == null) throw new IllegalArgumentException("The given updater is null.");
+        if (EntityPositionHook.updater != null) throw new IllegalStateException("The updater is already installed.");
+        EntityPositionHook.updater = newUpdater;
+    }
+
+    /**
+     * Inform the given entity about its current position, if it is a {@link BasicEntity}.
+     *
+     * @param entity
+     *     The entity that was added, moved or removed
+     * @param playfield
+     *     The playfield the entity is on
+     * @param position
+     *     The new position of the entity or null if it was removed from the playfield
+     */
+    static void update(final Entity entity, final Playfield playfield, final Position position) {
+        if (!(entity instanceof BasicEntity)) return;
+        // the class of the entity is initialized, so the updater is installed
+        EntityPositionHook.updater.update((BasicEntity) entity, playfield, position);
+    }
+
+    /**
+     * Forwards a position update to a {@link BasicEntity}.
+     */
+    @FunctionalInterface
+    public interface Updater {
+        /**
+         * Inform the given entity about its current position on the playfield.
+         *
+         * @param entity
+         *     The entity to inform
+         * @param playfield
+         *     The playfield the entity is on
+         * @param position
+         *     The new position of the entity or null if it was removed from the playfield
+         */
+        void update(BasicEntity entity, Playfield playfield, Position position);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * An index of all entities on a playfield by their type.
+ * <p>
+ * The entities are grouped by their concrete class. For every requested type the groups matching that type are computed
+ * once and cached. The cache is only invalidated when an entity of a new concrete class is added, so a query costs
+ * O(number of results) instead of O(number of entities).
+ * </p>
+ * <p>
+ * Modifications are not thread safe and must be synchronized by the playfield. Multiple concurrent calls to
+ * {@link #get(Class, boolean)} are allowed as long as no modification runs at the same time.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class EntityTypeIndex {
+
+    private final Map<Class<?>, Set<Entity>>       entitiesByClass = new HashMap<>();
+    private final Map<Class<?>, List<Set<Entity>>> matchingGroups  = new ConcurrentHashMap<>();
+
+    /**
+     * Add the given entity to this index.
+     *
+     * @param entity
+     *     The entity to add
+     */
+    public void add(final Entity entity) {
+        Set<Entity> group = this.entitiesByClass.get(entity.getClass());
+        if (group == null) {
+            group = new LinkedHashSet<>();
+            this.entitiesByClass.put(entity.getClass(), group);
+            this.matchingGroups.clear();
+        }
+        group.add(entity);
+    }
+
+    /**
+     * Remove the given entity from this index.
+     *
+     * @param entity
+     *     The entity to remove
+     * @return whether the entity was in this index
+     */
+    public boolean remove(final Entity entity) {
+        // empty groups are kept, so the cached matching groups stay valid
+        final Set<Entity> group = this.entitiesByClass.get(entity.getClass());
+        return (group != null) && group.remove(entity);
+    }
+
+    private List<Set<Entity>> getMatchingGroups(final Class<?> type) {
+        return this.matchingGroups.computeIfAbsent(type, key -> {
+            final List<Set<Entity>> groups = new ArrayList<>();
+            for (final Map.Entry<Class<?>, Set<Entity>> entry : this.entitiesByClass.entrySet()) {
+                if (key.isAssignableFrom(entry.getKey())) {
+                    groups.add(entry.getValue());
+                }
+            }
+            return groups;
+        });
+    }
+
+    /**
+     * Get all entities in this index of the given type.
+     *
+     * @param <T>
+     *     The generic type to return the entities as
+     * @param type
+     *     The type of the entities to get
+     * @param includeSubclasses
+     *     Whether to include the subclasses of the given type
+     * @return A new list of all matching entities
+     */
+    public <T extends Entity> List<T> get(final Class<? extends T> type, final boolean includeSubclasses) {
+        if (!includeSubclasses) {
+            final Set<Entity> group = this.entitiesByClass.get(type);
+            if (group == null) return new ArrayList<>();
+            return this.toTypedList(group);
+        }
+        final List<Set<Entity>> groups = this.getMatchingGroups(type);
+        if (groups.size() == 1) return this.toTypedList(groups.get(0));
+
+        int size = 0;
+        for (final Set<Entity> group : groups) {
+            size += group.size();
+        }
+        final List<Entity> result = new ArrayList<>(size);
+        for (final Set<Entity> group : groups) {
+            result.addAll(group);
+        }
+        //All entities in the matching groups are instances of the requested type.
+        @SuppressWarnings("unchecked")
+        final List<T> typedResult = (List<T>) result;
+        return typedResult;
+    }
+
+    private <T extends Entity> List<T> toTypedList(final Set<Entity> group) {
+        //The group only contains entities of the requested type or a subtype of it.
+        @SuppressWarnings("unchecked")
+        final List<T> result = new ArrayList<>((Set<T>) group);
+        return result;
+    }
+}
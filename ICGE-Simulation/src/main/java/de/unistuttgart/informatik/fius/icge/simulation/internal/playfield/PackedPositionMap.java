@@ -0,0 +1,269 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+
+/**
+ * An open addressing hash map from a pair of int coordinates to a value.
+ * <p>
+ * The coordinates are packed into a single {@code long} key (see {@link #pack(int, int)}), so lookups do not need to
+ * allocate a {@link de.unistuttgart.informatik.fius.icge.simulation.Position Position} or box any key object.
+ * </p>
+ * <p>
+ * This class is not thread safe. The playfield is responsible for synchronizing all access. The only exception is
+ * {@link #getOptimistic(long)}, which may race with a writer as long as the caller validates the result afterwards.
+ * </p>
+ *
+ * @author Tim Neumann
+ * @param <V>
+ *     The type of the values
+ */
+public class PackedPositionMap<V> {
+    private static final int   INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR      = 0.5f;
+
+    private long[]   keys;
+    private Object[] values;
+    private int      size;
+    private int      resizeThreshold;
+
+    /**
+     * Create a new empty map.
+     */
+    public PackedPositionMap() {
+        this.allocate(PackedPositionMap.INITIAL_CAPACITY);
+    }
+
+    /**
+     * Pack the given coordinates into a single long key.
+     *
+     * @param x
+     *     The x coordinate
+     * @param y
+     *     The y coordinate
+     * @return the packed key
+     */
+    public static long pack(final int x, final int y) {
+        return (((long) x) << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the x coordinate of a packed key.
+     *
+     * @param key
+     *     The packed key
+     * @return the x coordinate
+     */
+    public static int unpackX(final long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Get the y coordinate of a packed key.
+     *
+     * @param key
+     *     The packed key
+     * @return the y coordinate
+     */
+    public static int unpackY(final long key) {
+        return (int) key;
+    }
+
+    private static int mix(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.resizeThreshold = (int) (capacity * PackedPositionMap.LOAD_FACTOR);
+    }
+
+    /**
+     * Find the slot for the given key.
+     *
+     * @param key
+     *     The key to search
+     * @return the slot containing the key or the empty slot at which it would have to be inserted
+     */
+    private int findSlot(final long key) {
+        final int mask = this.keys.length - 1;
+        int slot = PackedPositionMap.mix(key) & mask;
+        while ((this.values[slot] != null) && (this.keys[slot] != key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Get the value at the given coordinates.
+     *
+     * @param x
+     *     The x coordinate
+     * @param y
+     *     The y coordinate
+     * @return the value or null if there is none
+     */
+    public V get(final int x, final int y) {
+        return this.get(PackedPositionMap.pack(x, y));
+    }
+
+    /**
+     * Get the value for the given packed key.
+     *
+     * @param key
+     *     The packed key
+     * @return the value or null if there is none
+     */
+    public V get(final long key) {
+        //The values array only ever contains objects of type V.
+        @SuppressWarnings("unchecked")
+        final V value = (V) this.values[this.findSlot(key)];
+        return value;
+    }
+
+    /**
+     * Get the value for the given packed key without any synchronization.
+     * <p>
+     * This may run concurrently with a modification of this map. It never fails in that case, but the returned value
+     * may be wrong, so it must only be used inside an optimistic read which is validated afterwards (see
+     * {@link java.util.concurrent.locks.StampedLock#tryOptimisticRead()}).
+     * </p>
+     *
+     * @param key
+     *     The packed key
+     * @return the value or null if there is none or a concurrent modification was detected
+     */
+    public V getOptimistic(final long key) {
+        // a resize replaces both arrays, so only use arrays which belong together
+        final long[] currentKeys = this.keys;
+        final Object[] currentValues = this.values;
+        if (currentKeys.length != currentValues.length) return null;
+        final int mask = currentKeys.length - 1;
+        int slot = PackedPositionMap.mix(key) & mask;
+        for (int probes = 0; probes < currentKeys.length; probes++) {
+            final Object value = currentValues[slot];
+            if (value == null) return null;
+            if (currentKeys[slot] == key) {
+                //The values array only ever contains objects of type V.
+                @SuppressWarnings("unchecked")
+                final V typedValue = (V) value;
+                return typedValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Set the value for the given packed key.
+     *
+     * @param key
+     *     The packed key
+     * @param value
+     *     The value to set; must not be null
+     */
+    public void put(final long key, final V value) {
+        if (value == null) throw new IllegalArgumentException("The given value is null.");
+        int slot = this.findSlot(key);
+        if (this.values[slot] == null) {
+            if (this.size >= this.resizeThreshold) {
+                this.resize(this.keys.length * 2);
+                slot = this.findSlot(key);
+            }
+            this.size++;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+    }
+
+    /**
+     * Remove the value for the given packed key.
+     *
+     * @param key
+     *     The packed key
+     * @return the value that was removed or null if there was none
+     */
+    public V remove(final long key) {
+        final int mask = this.keys.length - 1;
+        int slot = this.findSlot(key);
+        //The values array only ever contains objects of type V.
+        @SuppressWarnings("unchecked")
+        final V removed = (V) this.values[slot];
+        if (removed == null) return null;
+        this.values[slot] = null;
+        this.size--;
+
+        // shift following entries back so that no probe sequence is interrupted by the new hole
+        int next = (slot + 1) & mask;
+        while (this.values[next] != null) {
+            final int home = PackedPositionMap.mix(this.keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                this.keys[slot] = this.keys[next];
+                this.values[slot] = this.values[next];
+                this.values[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removed;
+    }
+
+    private void resize(final int newCapacity) {
+        final long[] oldKeys = this.keys;
+        final Object[] oldValues = this.values;
+        this.allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                final int slot = this.findSlot(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * @return the number of values in this map
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove all values from this map.
+     */
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Run the given action for each value in this map.
+     *
+     * @param action
+     *     The action to run
+     */
+    public void forEachValue(final Consumer<? super V> action) {
+        final Object[] currentValues = this.values;
+        for (final Object value : currentValues) {
+            if (value != null) {
+                //The values array only ever contains objects of type V.
+                @SuppressWarnings("unchecked")
+                final V typedValue = (V) value;
+                action.accept(typedValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.function.Consumer;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.SolidEntity;
+
+
+/**
+ * A square block of {@value #SIZE} x {@value #SIZE} playfield cells.
+ * <p>
+ * Chunks are allocated lazily by the playfield when the first entity is placed into their area and dropped again when
+ * their last entity leaves. Cells inside a chunk are allocated lazily as well.
+ * </p>
+ * <p>
+ * This class is not thread safe. All access to the contents of a chunk must be synchronized on the chunk itself. A
+ * chunk which was removed from the playfield is marked as {@linkplain #isDetached() detached}, so that a reader which
+ * found it just before its removal can detect that and look again.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class PlayfieldChunk {
+    /** The number of bits of a coordinate used for the position inside a chunk. */
+    public static final int SHIFT = 4;
+    /** The width and height of a chunk in cells. */
+    public static final int SIZE  = 1 << PlayfieldChunk.SHIFT;
+    /** The mask to get the position inside a chunk from a coordinate. */
+    public static final int MASK  = PlayfieldChunk.SIZE - 1;
+
+    private final int chunkX;
+    private final int chunkY;
+
+    private final PlayfieldCell[]  cells      = new PlayfieldCell[PlayfieldChunk.SIZE * PlayfieldChunk.SIZE];
+    private final int[]            solidCount = new int[PlayfieldChunk.SIZE * PlayfieldChunk.SIZE];
+    private int                    occupiedCells;
+    private boolean                detached;
+    private PlayfieldChunkSnapshot snapshot;
+
+    /**
+     * Create a new empty chunk.
+     *
+     * @param chunkX
+     *     The x coordinate of the chunk (the x coordinate of its cells shifted by {@value #SHIFT})
+     * @param chunkY
+     *     The y coordinate of the chunk (the y coordinate of its cells shifted by {@value #SHIFT})
+     */
+    public PlayfieldChunk(final int chunkX, final int chunkY) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+    }
+
+    /**
+     * Get the packed key of the chunk containing the given cell coordinates.
+     *
+     * @param x
+     *     The x coordinate of the cell
+     * @param y
+     *     The y coordinate of the cell
+     * @return the key of the chunk
+     */
+    public static long keyOf(final int x, final int y) {
+        return PackedPositionMap.pack(x >> PlayfieldChunk.SHIFT, y >> PlayfieldChunk.SHIFT);
+    }
+
+    private static int indexOf(final int x, final int y) {
+        return ((x & PlayfieldChunk.MASK) << PlayfieldChunk.SHIFT) | (y & PlayfieldChunk.MASK);
+    }
+
+    /**
+     * @return the x coordinate of this chunk
+     */
+    public int getChunkX() {
+        return this.chunkX;
+    }
+
+    /**
+     * @return the y coordinate of this chunk
+     */
+    public int getChunkY() {
+        return this.chunkY;
+    }
+
+    /**
+     * Get the cell at the given coordinates.
+     *
+     * @param x
+     *     The x coordinate of the cell; must be inside this chunk
+     * @param y
+     *     The y coordinate of the cell; must be inside this chunk
+     * @return the cell or null if there is no cell allocated at that position
+     */
+    public PlayfieldCell getCell(final int x, final int y) {
+        return this.cells[PlayfieldChunk.indexOf(x, y)];
+    }
+
+    /**
+     * Get the cell at the given position and create it if it is not there.
+     *
+     * @param pos
+     *     The position of the cell; must be inside this chunk
+     * @return the cell at that position
+     */
+    public PlayfieldCell getOrCreateCell(final Position pos) {
+        final int index = PlayfieldChunk.indexOf(pos.getX(), pos.getY());
+        PlayfieldCell cell = this.cells[index];
+        if (cell == null) {
+            cell = new PlayfieldCell(pos);
+            this.cells[index] = cell;
+            this.occupiedCells++;
+        }
+        return cell;
+    }
+
+    /**
+     * Release the cell at the given coordinates if it does not contain any entity anymore.
+     *
+     * @param x
+     *     The x coordinate of the cell; must be inside this chunk
+     * @param y
+     *     The y coordinate of the cell; must be inside this chunk
+     */
+    public void releaseCellIfEmpty(final int x, final int y) {
+        final int index = PlayfieldChunk.indexOf(x, y);
+        final PlayfieldCell cell = this.cells[index];
+        if ((cell != null) && cell.isEmpty()) {
+            this.cells[index] = null;
+            this.occupiedCells--;
+        }
+    }
+
+    /**
+     * Check whether a currently solid entity is in the cell at the given coordinates.
+     * <p>
+     * This only reads the counter maintained by {@link #updateSolidCount(int, int)} and does not poll any entity.
+     * </p>
+     *
+     * @param x
+     *     The x coordinate of the cell; must be inside this chunk
+     * @param y
+     *     The y coordinate of the cell; must be inside this chunk
+     * @return whether a solid entity is in that cell
+     */
+    public boolean isSolid(final int x, final int y) {
+        return this.solidCount[PlayfieldChunk.indexOf(x, y)] > 0;
+    }
+
+    /**
+     * Recount the currently solid entities in the cell at the given coordinates.
+     * <p>
+     * Must be called whenever a {@link SolidEntity} entered or left that cell or reported a change of its solidity.
+     * </p>
+     *
+     * @param x
+     *     The x coordinate of the cell; must be inside this chunk
+     * @param y
+     *     The y coordinate of the cell; must be inside this chunk
+     */
+    public void updateSolidCount(final int x, final int y) {
+        final int index = PlayfieldChunk.indexOf(x, y);
+        final PlayfieldCell cell = this.cells[index];
+        if (cell == null) {
+            this.solidCount[index] = 0;
+            return;
+        }
+        final int[] count = { 0 };
+        cell.forEach(SolidEntity.class, true, entity -> {
+            if (entity.isCurrentlySolid()) {
+                count[0]++;
+            }
+        });
+        this.solidCount[index] = count[0];
+    }
+
+    /**
+     * @return whether no cell of this chunk is allocated
+     */
+    public boolean isEmpty() {
+        return this.occupiedCells == 0;
+    }
+
+    /**
+     * Get a snapshot of the current contents of this chunk.
+     * <p>
+     * The snapshot is kept until {@link #invalidateSnapshot()} is called, so unchanged chunks return the same snapshot.
+     * </p>
+     *
+     * @return the snapshot
+     */
+    public PlayfieldChunkSnapshot getSnapshot() {
+        if (this.snapshot == null) {
+            this.snapshot = new PlayfieldChunkSnapshot(this);
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Drop the kept snapshot of this chunk. Must be called whenever an entity enters or leaves this chunk.
+     */
+    public void invalidateSnapshot() {
+        this.snapshot = null;
+    }
+
+    /**
+     * Mark this chunk as removed from the playfield.
+     */
+    public void detach() {
+        this.detached = true;
+    }
+
+    /**
+     * @return whether this chunk was removed from the playfield
+     */
+    public boolean isDetached() {
+        return this.detached;
+    }
+
+    /**
+     * Run the given action for every allocated cell of this chunk, which is inside the given rectangle.
+     * <p>
+     * The rectangle may extend beyond this chunk. The bounds are inclusive and {@code x0 <= x1} and {@code y0 <= y1}
+     * must hold.
+     * </p>
+     *
+     * @param x0
+     *     The smallest x coordinate of the rectangle
+     * @param y0
+     *     The smallest y coordinate of the rectangle
+     * @param x1
+     *     The largest x coordinate of the rectangle
+     * @param y1
+     *     The largest y coordinate of the rectangle
+     * @param action
+     *     The action to run
+     */
+    public void forEachCellInRegion(final int x0, final int y0, final int x1, final int y1, final Consumer<PlayfieldCell> action) {
+        final long originX = ((long) this.chunkX) << PlayfieldChunk.SHIFT;
+        final long originY = ((long) this.chunkY) << PlayfieldChunk.SHIFT;
+        final int fromX = (int) Math.max(0, x0 - originX);
+        final int fromY = (int) Math.max(0, y0 - originY);
+        final int toX = (int) Math.min(PlayfieldChunk.MASK, x1 - originX);
+        final int toY = (int) Math.min(PlayfieldChunk.MASK, y1 - originY);
+        for (int localX = fromX; localX <= toX; localX++) {
+            for (int localY = fromY; localY <= toY; localY++) {
+                final PlayfieldCell cell = this.cells[(localX << PlayfieldChunk.SHIFT) | localY];
+                if (cell != null) {
+                    action.accept(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the given action for every allocated cell of this chunk.
+     *
+     * @param action
+     *     The action to run
+     */
+    public void forEachCell(final Consumer<PlayfieldCell> action) {
+        if (this.occupiedCells == 0) return;
+        for (final PlayfieldCell cell : this.cells) {
+            if (cell != null) {
+                action.accept(cell);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * The immutable contents of a {@link PlayfieldChunk} at one point in time.
+ * <p>
+ * A chunk keeps its snapshot until it is modified, so snapshots of the whole playfield share the snapshots of all
+ * chunks which did not change in between.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public final class PlayfieldChunkSnapshot {
+    private final Entity[]   entities;
+    private final Position[] positions;
+
+    /**
+     * Create a snapshot of the given chunk.
+     * <p>
+     * The chunk must be locked by the caller.
+     * </p>
+     *
+     * @param chunk
+     *     The chunk to take a snapshot of
+     */
+    public PlayfieldChunkSnapshot(final PlayfieldChunk chunk) {
+        final List<Entity> entityList = new ArrayList<>();
+        final List<Position> positionList = new ArrayList<>();
+        chunk.forEachCell(cell -> cell.forEach(Entity.class, true, entity -> {
+            entityList.add(entity);
+            positionList.add(cell.getPosition());
+        }));
+        this.entities = entityList.toArray(new Entity[0]);
+        this.positions = positionList.toArray(new Position[0]);
+    }
+
+    /**
+     * @return the number of entities in this snapshot
+     */
+    public int size() {
+        return this.entities.length;
+    }
+
+    /**
+     * @param index
+     *     The index of the entity
+     * @return the entity at the given index
+     */
+    public Entity getEntity(final int index) {
+        return this.entities[index];
+    }
+
+    /**
+     * @param index
+     *     The index of the entity
+     * @return the position of the entity at the given index
+     */
+    public Position getPosition(final int index) {
+        return this.positions[index];
+    }
+}
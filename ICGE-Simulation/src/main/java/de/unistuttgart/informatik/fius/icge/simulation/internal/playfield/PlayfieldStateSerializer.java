@@ -0,0 +1,155 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldBatch;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldSnapshot;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.EntitySerializer;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.EntityTypeRegistry;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.PersistableEntity;
+
+
+/**
+ * Writes and reads the binary representation of all entities on a playfield.
+ * <p>
+ * The format starts with a header (magic number, format version, number of entities) followed by the x and y coordinate
+ * and the entity data of each entity. An entity is stored as the index of its type name followed by a flag whether it
+ * has state and the state itself. A type name is written only once, where it is used first; later uses only refer to
+ * its index.
+ * </p>
+ * <p>
+ * A serializer must only be used for writing or reading a single playfield.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class PlayfieldStateSerializer implements EntitySerializer {
+    /** The magic number at the start of every file ("ICGP"). */
+    public static final int   MAGIC          = 0x49434750;
+    /** The version of the format. */
+    public static final short FORMAT_VERSION = 1;
+
+    private static final int NEW_TYPE = -1;
+
+    private final EntityTypeRegistry registry;
+
+    private final Map<String, Integer> writtenTypes = new HashMap<>();
+    private final List<String>         readTypes    = new ArrayList<>();
+
+    /**
+     * Create a new serializer.
+     *
+     * @param registry
+     *     The registry to get the type names from and to create the entities with
+     */
+    public PlayfieldStateSerializer(final EntityTypeRegistry registry) {
+        if (registry == null) throw new IllegalArgumentException("The given registry is null.");
+        this.registry = registry;
+    }
+
+    /**
+     * Write all entities of the given snapshot.
+     *
+     * @param out
+     *     The output to write to
+     * @param snapshot
+     *     The snapshot of the playfield to write
+     * @throws IOException
+     *     if writing fails
+     * @throws IllegalArgumentException
+     *     if the type of an entity is not registered
+     */
+    public void writePlayfield(final DataOutput out, final PlayfieldSnapshot snapshot) throws IOException {
+        final List<Entity> entities = snapshot.getEntities();
+        out.writeInt(PlayfieldStateSerializer.MAGIC);
+        out.writeShort(PlayfieldStateSerializer.FORMAT_VERSION);
+        out.writeInt(entities.size());
+        for (final Entity entity : entities) {
+            final Position pos = snapshot.getEntityPosition(entity);
+            out.writeInt(pos.getX());
+            out.writeInt(pos.getY());
+            this.writeEntity(out, entity);
+        }
+    }
+
+    /**
+     * Read all entities written by {@link #writePlayfield(DataOutput, PlayfieldSnapshot)} and record adding them in the
+     * given batch.
+     *
+     * @param in
+     *     The input to read from
+     * @param batch
+     *     The batch to record the new entities in
+     * @throws IOException
+     *     if reading fails or the data is invalid
+     */
+    public void readPlayfield(final DataInput in, final PlayfieldBatch batch) throws IOException {
+        if (in.readInt() != PlayfieldStateSerializer.MAGIC) throw new IOException("Not a saved playfield.");
+        final short version = in.readShort();
+        if (version != PlayfieldStateSerializer.FORMAT_VERSION) throw new IOException("Unsupported format version: " + version);
+        final int count = in.readInt();
+        if (count < 0) throw new IOException("Invalid number of entities: " + count);
+        for (int i = 0; i < count; i++) {
+            final int x = in.readInt();
+            final int y = in.readInt();
+            batch.addEntity(new Position(x, y), this.readEntity(in));
+        }
+    }
+
+    @Override
+    public void writeEntity(final DataOutput out, final Entity entity) throws IOException {
+        final String typeName = this.registry.getTypeNameOfEntity(entity);
+        if (typeName == null) throw new IllegalArgumentException("The type of the entity " + entity + " is not registered.");
+        final Integer typeIndex = this.writtenTypes.get(typeName);
+        if (typeIndex == null) {
+            out.writeInt(PlayfieldStateSerializer.NEW_TYPE);
+            out.writeUTF(typeName);
+            this.writtenTypes.put(typeName, this.writtenTypes.size());
+        } else {
+            out.writeInt(typeIndex);
+        }
+        if (entity instanceof PersistableEntity) {
+            out.writeBoolean(true);
+            ((PersistableEntity) entity).writeState(out, this);
+        } else {
+            out.writeBoolean(false);
+        }
+    }
+
+    @Override
+    public Entity readEntity(final DataInput in) throws IOException {
+        final int typeIndex = in.readInt();
+        final String typeName;
+        if (typeIndex == PlayfieldStateSerializer.NEW_TYPE) {
+            typeName = in.readUTF();
+            this.readTypes.add(typeName);
+        } else if ((typeIndex >= 0) && (typeIndex < this.readTypes.size())) {
+            typeName = this.readTypes.get(typeIndex);
+        } else throw new IOException("Invalid entity type index: " + typeIndex);
+
+        final Entity entity = this.registry.getNewEntity(typeName);
+        if (entity == null) throw new IOException("Unknown entity type: " + typeName);
+        if (in.readBoolean()) {
+            if (!(entity instanceof PersistableEntity)) throw new IOException("Entity type " + typeName + " has no state.");
+            ((PersistableEntity) entity).readState(in, this);
+        }
+        return entity;
+    }
+}
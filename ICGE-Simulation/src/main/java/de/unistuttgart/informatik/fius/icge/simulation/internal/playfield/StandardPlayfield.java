@@ -9,19 +9,35 @@
  */
 package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldBatch;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldSnapshot;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDespawnAction;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityMoveAction;
 import de.unistuttgart.informatik.fius.icge.simulation.actions.EntitySpawnAction;
@@ -38,26 +54,59 @@ import de.unistuttgart.informatik.fius.icge.ui.exception.ListenerSetException;
 
 /**
  * The standard implementation of {@link Playfield}
+ * <p>
+ * The playfield uses two levels of locking. A {@link StampedLock} guards the structure of the playfield: which chunks
+ * exist and which entities are on it. Adding and removing entities or chunks takes its write lock. The contents of each
+ * chunk are guarded by the monitor of that chunk. Moves only take the read lock and the monitors of the chunks they
+ * touch, so entities in different chunks can move in parallel. Point lookups use an optimistic read of the structure
+ * and then only lock the one chunk they read.
+ * </p>
+ * <p>
+ * Locks are never held while calling into entities (apart from reading their solidity) or while updating the simulation
+ * tree. Added entities are initialized between two write locks, so they may query this playfield while being
+ * initialized.
+ * </p>
  *
  * @author Tim Neumann
  */
 public class StandardPlayfield implements Playfield {
     private WeakReference<Simulation> sim;
 
-    private final Object playfieldLock = new Object();
+    private final StampedLock structureLock      = new StampedLock();
+    private final Object      simulationTreeLock = new Object();
 
-    private final Map<Position, PlayfieldCell> cells           = new HashMap<>();
-    private final Map<Entity, Position>        entityPositions = new HashMap<>();
+    private final PackedPositionMap<PlayfieldChunk> chunks             = new PackedPositionMap<>();
+    private final Map<Entity, Position>             entityPositions    = new ConcurrentHashMap<>();
+    private final EntityTypeIndex                   typeIndex          = new EntityTypeIndex();
+    /** The entities which are initialized to be added; only accessed while holding the structure write lock */
+    private final Set<Entity>                       entitiesBeingAdded = new HashSet<>();
 
-    private SimulationTreeNode simualtionTreeRootNode;
+    /**
+     * The number of times the snapshot is collected under the read lock before the write lock is taken.
+     */
+    private static final int SNAPSHOT_ATTEMPTS = 3;
+
+    /** Counts all changes of entity positions, to know whether the snapshot is outdated. */
+    private final AtomicLong                                 modificationCount = new AtomicLong();
+    /** Counts all draw requests, to know whether the drawables of the snapshot are outdated. */
+    private final AtomicLong                                 drawCount         = new AtomicLong();
+    /** The newest snapshot; only replaced by {@link #publishSnapshot(StandardPlayfieldSnapshot)} */
+    private final AtomicReference<StandardPlayfieldSnapshot> snapshot          = new AtomicReference<>();
+
+    private SimulationTreeNode                      simualtionTreeRootNode;
+    private final Map<Class<?>, SimulationTreeNode> simulationTreeClassNodes  = new HashMap<>();
+    private final Map<Entity, SimulationTreeNode>   simulationTreeEntityNodes = new HashMap<>();
 
     private BiConsumer<SimulationTreeNode, Entity> simulationTreeEntityAddedListener;
     private Consumer<SimulationTreeNode>           simulationTreeEntityRemovedListener;
+    private Runnable                               simulationTreeChangedListener;
 
     private Consumer<List<Drawable>> drawablesChangedListener;
 
-    private boolean awaitingEntityDraw = false;
-    private long    timeBetweenDraws   = 32; //the time between draw calls in milliseconds
+    private boolean headless;
+
+    private volatile boolean awaitingEntityDraw = false;
+    private long             timeBetweenDraws   = 32; //the time between draw calls in milliseconds
 
     /**
      * Initialize the playfield for the given simulation
@@ -67,13 +116,17 @@ public class StandardPlayfield implements Playfield {
      */
     public void initialize(final StandardSimulation simulation) {
         this.sim = new WeakReference<>(simulation);
+        this.headless = simulation.isHeadless();
+        this.simualtionTreeRootNode = new SimulationTreeNode("root", "Entities", "", false);
+        //Nothing is drawn without a window, so snapshots are only taken on request
+        if (this.headless) return;
+
         simulation.getSimulationClock().registerPostTickListener(count -> {
             this.drawEntities();
+            this.currentSnapshot(count);
             return true;
         });
 
-        this.simualtionTreeRootNode = new SimulationTreeNode("root", "Entities", "", false);
-
         new Timer().scheduleAtFixedRate(new TimerTask() {
 
             @Override
@@ -99,8 +152,14 @@ public class StandardPlayfield implements Playfield {
     /**
      * Queues a draw update to the playfield drawer. Draw updates are sent to the playfield drawer automatically every
      * 32ms.
+     * <p>
+     * Must be called whenever the draw information of an entity changed without the entity being moved, so that the
+     * drawables are collected again.
+     * </p>
      */
     public void drawEntities() {
+        this.drawCount.incrementAndGet();
+        if (this.headless) return;
         this.awaitingEntityDraw = true;
     }
 
@@ -111,14 +170,11 @@ public class StandardPlayfield implements Playfield {
         if (!this.awaitingEntityDraw) { //fast exit as default
             return; // no updates to draw
         }
-        final List<Drawable> drawables = new ArrayList<>();
-        for (final Entity entity : this.getAllEntities()) {
-            try {
-                drawables.add(entity.getDrawInformation());
-            } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
-                //Entity has been removed from the field while this loop was running.
-                //Just don't draw it and ignore the exception.
-            }
+        final List<Drawable> drawables;
+        try {
+            drawables = this.getSnapshot().getDrawables();
+        } catch (@SuppressWarnings("unused") final IllegalStateException e) {
+            return; //If we are not attached to a simultion we do not need to draw anything
         }
         try {
             if (this.drawablesChangedListener != null) {
@@ -130,6 +186,87 @@ public class StandardPlayfield implements Playfield {
 
     }
 
+    @Override
+    public PlayfieldSnapshot getSnapshot() {
+        return this.currentSnapshot(this.getSimulation().getSimulationClock().getLastTickNumber());
+    }
+
+    /**
+     * Get the snapshot for the given tick and publish it. The contents of the last snapshot are reused if nothing
+     * changed.
+     */
+    private StandardPlayfieldSnapshot currentSnapshot(final long tickNumber) {
+        // read before collecting, so that a concurrent draw request is not lost
+        final long currentDrawCount = this.drawCount.get();
+        final StandardPlayfieldSnapshot current = this.snapshot.get();
+        if ((current == null) || (current.getModificationCount() != this.modificationCount.get()))
+            return this.takeSnapshot(tickNumber, currentDrawCount);
+        if ((current.getTickNumber() == tickNumber) && (current.getDrawCount() == currentDrawCount)) return current;
+        final StandardPlayfieldSnapshot newSnapshot = current.withTickNumber(tickNumber, currentDrawCount);
+        this.publishSnapshot(newSnapshot);
+        return newSnapshot;
+    }
+
+    /**
+     * Take and publish a new snapshot.
+     * <p>
+     * The chunks are collected under the read lock, so entities can keep moving. If the modification count changed
+     * while collecting, an entity moved between chunks and the collection is repeated. Only after a few failed attempts
+     * the write lock is taken. Only chunks which changed since the last snapshot are copied.
+     * </p>
+     */
+    private StandardPlayfieldSnapshot takeSnapshot(final long tickNumber, final long currentDrawCount) {
+        PlayfieldChunkSnapshot[] chunkSnapshots = null;
+        long collectedModificationCount = 0;
+        for (int attempt = 1; chunkSnapshots == null; attempt++) {
+            final boolean exclusive = attempt > StandardPlayfield.SNAPSHOT_ATTEMPTS;
+            final long stamp = exclusive ? this.structureLock.writeLock() : this.structureLock.readLock();
+            try {
+                collectedModificationCount = this.modificationCount.get();
+                final PlayfieldChunkSnapshot[] collected = new PlayfieldChunkSnapshot[this.chunks.size()];
+                final int[] index = { 0 };
+                this.chunks.forEachValue(chunk -> {
+                    synchronized (chunk) {
+                        collected[index[0]++] = chunk.getSnapshot();
+                    }
+                });
+                if (exclusive || (collectedModificationCount == this.modificationCount.get())) {
+                    chunkSnapshots = collected;
+                }
+            } finally {
+                this.structureLock.unlock(stamp);
+            }
+        }
+        final StandardPlayfieldSnapshot newSnapshot = new StandardPlayfieldSnapshot(
+                tickNumber, collectedModificationCount, currentDrawCount, chunkSnapshots
+        );
+        this.publishSnapshot(newSnapshot);
+        return newSnapshot;
+    }
+
+    /**
+     * Publish the given snapshot, unless a newer one was published in the meantime.
+     * <p>
+     * Snapshots are taken by the tick thread and by every thread calling {@link #getSnapshot()} without any lock, so a
+     * thread which took its snapshot earlier may finish later. A snapshot is newer if it is for a later tick, or for
+     * the same tick but was taken after more modifications or draw requests.
+     * </p>
+     */
+    private void publishSnapshot(final StandardPlayfieldSnapshot newSnapshot) {
+        StandardPlayfieldSnapshot current;
+        do {
+            current = this.snapshot.get();
+            if ((current != null) && StandardPlayfield.isOlder(newSnapshot, current)) return;
+        } while (!this.snapshot.compareAndSet(current, newSnapshot));
+    }
+
+    private static boolean isOlder(final StandardPlayfieldSnapshot snapshot, final StandardPlayfieldSnapshot other) {
+        if (snapshot.getTickNumber() != other.getTickNumber()) return snapshot.getTickNumber() < other.getTickNumber();
+        if (snapshot.getModificationCount() != other.getModificationCount())
+            return snapshot.getModificationCount() < other.getModificationCount();
+        return snapshot.getDrawCount() < other.getDrawCount();
+    }
+
     @Override
     public List<Entity> getAllEntities() {
         return this.getAllEntitiesOfType(Entity.class, true);
@@ -138,122 +275,343 @@ public class StandardPlayfield implements Playfield {
     @Override
     public <T extends Entity> List<T> getAllEntitiesOfType(final Class<? extends T> type, final boolean includeSubclasses) {
         if (type == null) throw new IllegalArgumentException("The given type is null.");
-        final List<T> result = new ArrayList<>();
-        synchronized (this.playfieldLock) {
-            for (final PlayfieldCell cell : this.cells.values()) {
-                result.addAll(cell.get(type, includeSubclasses));
-            }
+        final long stamp = this.structureLock.readLock();
+        try {
+            return this.typeIndex.get(type, includeSubclasses);
+        } finally {
+            this.structureLock.unlockRead(stamp);
         }
-        return result;
     }
 
     @Override
     public List<Entity> getEntitiesAt(final Position pos) {
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
-        return this.getEntitiesOfTypeAt(pos, Entity.class, true);
+        return this.getEntitiesAt(pos.getX(), pos.getY());
+    }
+
+    @Override
+    public List<Entity> getEntitiesAt(final int x, final int y) {
+        return this.getEntitiesOfTypeAt(x, y, Entity.class, true);
     }
 
     @Override
     public <T extends Entity> List<T> getEntitiesOfTypeAt(
             final Position pos, final Class<? extends T> type, final boolean includeSubclasses
     ) {
-        if (type == null) throw new IllegalArgumentException("The given type is null.");
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
-        final List<T> result = new ArrayList<>();
-        synchronized (this.playfieldLock) {
-            final PlayfieldCell cell = this.cells.get(pos);
-            if ((cell != null) && cell.getPosition().equals(pos)) {
-                result.addAll(cell.get(type, includeSubclasses));
+        return this.getEntitiesOfTypeAt(pos.getX(), pos.getY(), type, includeSubclasses);
+    }
+
+    @Override
+    public <T extends Entity> List<T> getEntitiesOfTypeAt(
+            final int x, final int y, final Class<? extends T> type, final boolean includeSubclasses
+    ) {
+        if (type == null) throw new IllegalArgumentException("The given type is null.");
+        final long key = PlayfieldChunk.keyOf(x, y);
+        while (true) {
+            final PlayfieldChunk chunk = this.getChunk(key);
+            if (chunk == null) return new ArrayList<>();
+            synchronized (chunk) {
+                if (!chunk.isDetached()) {
+                    final PlayfieldCell cell = chunk.getCell(x, y);
+                    if (cell == null) return new ArrayList<>();
+                    return new ArrayList<>(cell.get(type, includeSubclasses));
+                }
             }
         }
+    }
+
+    @Override
+    public List<Entity> getEntitiesInRegion(final int x0, final int y0, final int x1, final int y1) {
+        final List<Entity> result = new ArrayList<>();
+        this.collectEntitiesInRegion(x0, y0, x1, y1, result);
         return result;
     }
 
-    private void addEntityToCell(final Position pos, final Entity entity) {
-        synchronized (this.playfieldLock) {
-            PlayfieldCell cell = this.cells.get(pos);
-            if (cell == null) {
-                cell = new PlayfieldCell(pos);
-                this.cells.put(pos, cell);
+    @Override
+    public void forEachEntityInRegion(final int x0, final int y0, final int x1, final int y1, final Consumer<? super Entity> action) {
+        if (action == null) throw new IllegalArgumentException("The given action is null.");
+        // the action runs after the lock is released, so it may query or modify this playfield
+        this.getEntitiesInRegion(x0, y0, x1, y1).forEach(action);
+    }
+
+    /**
+     * Add all entities inside the given region to the given list while holding the structure read lock.
+     */
+    private void collectEntitiesInRegion(final int x0, final int y0, final int x1, final int y1, final List<Entity> result) {
+        final int minX = Math.min(x0, x1);
+        final int minY = Math.min(y0, y1);
+        final int maxX = Math.max(x0, x1);
+        final int maxY = Math.max(y0, y1);
+        final Consumer<PlayfieldCell> cellAction = cell -> cell.forEach(Entity.class, true, result::add);
+        final Consumer<PlayfieldChunk> chunkAction = chunk -> {
+            synchronized (chunk) {
+                chunk.forEachCellInRegion(minX, minY, maxX, maxY, cellAction);
+            }
+        };
+        final long stamp = this.structureLock.readLock();
+        try {
+            final int minChunkX = minX >> PlayfieldChunk.SHIFT;
+            final int minChunkY = minY >> PlayfieldChunk.SHIFT;
+            final int maxChunkX = maxX >> PlayfieldChunk.SHIFT;
+            final int maxChunkY = maxY >> PlayfieldChunk.SHIFT;
+            final long chunksInRegion = ((maxChunkX - (long) minChunkX) + 1) * ((maxChunkY - (long) minChunkY) + 1);
+            if (chunksInRegion > this.chunks.size()) {
+                // the region is larger than the populated part of the playfield
+                this.chunks.forEachValue(chunk -> {
+                    if (
+                        (chunk.getChunkX() >= minChunkX) && (chunk.getChunkX() <= maxChunkX) && (chunk.getChunkY() >= minChunkY)
+                                && (chunk.getChunkY() <= maxChunkY)
+                    ) {
+                        chunkAction.accept(chunk);
+                    }
+                });
+                return;
             }
-            cell.add(entity);
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++) {
+                    final PlayfieldChunk chunk = this.chunks.get(chunkX, chunkY);
+                    if (chunk != null) {
+                        chunkAction.accept(chunk);
+                    }
+                }
+            }
+        } finally {
+            this.structureLock.unlockRead(stamp);
         }
     }
 
-    private void removeEntityFromCell(final Position pos, final Entity entity) {
-        synchronized (this.playfieldLock) {
-            final PlayfieldCell cell = this.cells.get(pos);
-            if ((cell == null) || !cell.contains(entity)) {
-                // TODO decide if this should throw an Exception
-                return; // cell is already empty...
-            }
-            cell.remove(entity);
-            if (cell.isEmpty()) {
-                this.cells.remove(pos, cell);
+    /**
+     * Get the chunk with the given key using an optimistic read of the chunk map.
+     * <p>
+     * The chunk is not locked. The caller has to synchronize on it and check that it is not detached before using it.
+     * </p>
+     *
+     * @param key
+     *     The key of the chunk
+     * @return the chunk or null if there is none
+     */
+    private PlayfieldChunk getChunk(final long key) {
+        final long stamp = this.structureLock.tryOptimisticRead();
+        if (stamp != 0) {
+            final PlayfieldChunk chunk = this.chunks.getOptimistic(key);
+            if (this.structureLock.validate(stamp)) return chunk;
+        }
+        final long readStamp = this.structureLock.readLock();
+        try {
+            return this.chunks.get(key);
+        } finally {
+            this.structureLock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Get the chunk with the given key and create it if it is not there.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private PlayfieldChunk getOrCreateChunk(final long key) {
+        PlayfieldChunk chunk = this.chunks.get(key);
+        if (chunk == null) {
+            chunk = new PlayfieldChunk(PackedPositionMap.unpackX(key), PackedPositionMap.unpackY(key));
+            this.chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Remove the given chunk from the chunk map if it is empty.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private void removeChunkIfEmpty(final long key, final PlayfieldChunk chunk) {
+        synchronized (chunk) {
+            if (chunk.isEmpty() && (this.chunks.get(key) == chunk)) {
+                chunk.detach();
+                this.chunks.remove(key);
             }
         }
     }
 
+    /**
+     * Add the entity to the cell at the given position.
+     * <p>
+     * The chunk of the position must be locked.
+     * </p>
+     */
+    private static void addEntityToCell(final PlayfieldChunk chunk, final Position pos, final Entity entity) {
+        chunk.getOrCreateCell(pos).add(entity);
+        chunk.invalidateSnapshot();
+        if (entity instanceof SolidEntity) {
+            chunk.updateSolidCount(pos.getX(), pos.getY());
+        }
+    }
+
+    /**
+     * Remove the entity from the cell at the given position.
+     * <p>
+     * The chunk of the position must be locked.
+     * </p>
+     */
+    private static void removeEntityFromCell(final PlayfieldChunk chunk, final Position pos, final Entity entity) {
+        final PlayfieldCell cell = (chunk == null) ? null : chunk.getCell(pos.getX(), pos.getY());
+        if ((cell == null) || !cell.contains(entity)) {
+            // TODO decide if this should throw an Exception
+            return; // cell is already empty...
+        }
+        cell.remove(entity);
+        chunk.invalidateSnapshot();
+        chunk.releaseCellIfEmpty(pos.getX(), pos.getY());
+        if (entity instanceof SolidEntity) {
+            chunk.updateSolidCount(pos.getX(), pos.getY());
+        }
+    }
+
     @Override
     public void addEntity(final Position pos, final Entity entity) {
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
 
-        synchronized (this.playfieldLock) {
-            if (this.entityPositions.containsKey(entity))
+        long stamp = this.structureLock.writeLock();
+        try {
+            if (this.entityPositions.containsKey(entity) || !this.entitiesBeingAdded.add(entity))
                 throw new EntityAlreadyOnFieldExcpetion("The given entity" + entity + "is already on this playfield.");
+        } finally {
+            this.structureLock.unlockWrite(stamp);
+        }
 
-            entity.initOnPlayfield(this);
-
-            this.addEntityToCell(pos, entity);
+        this.initEntities(List.of(entity));
 
-            this.entityPositions.put(entity, pos);
+        stamp = this.structureLock.writeLock();
+        try {
+            this.entitiesBeingAdded.remove(entity);
+            this.addEntityWhileLocked(pos, entity);
 
+            // logged while locked, so the spawn is logged before any move of the entity
             this.getSimulation().getActionLog()
                     .logAction(new EntitySpawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this, pos));
-
-            this.addEntityToSimulationTree(entity);
+        } finally {
+            this.structureLock.unlockWrite(stamp);
         }
+
+        this.updateSimulationTree(List.of(entity), List.of());
         this.drawEntities();
     }
 
-    private SimulationTreeNode findNodeForEntity(final Entity entity, final boolean create) {
-        final List<Class<?>> classHiera = new ArrayList<>();
-        {
-            Class<?> clazz = entity.getClass();
-            do {
-                classHiera.add(0, clazz);
-                clazz = clazz.getSuperclass();
-            } while (Entity.class.isAssignableFrom(clazz));
+    /**
+     * Add the entity to the playfield.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private void addEntityWhileLocked(final Position pos, final Entity entity) {
+        final PlayfieldChunk chunk = this.getOrCreateChunk(PlayfieldChunk.keyOf(pos.getX(), pos.getY()));
+        synchronized (chunk) {
+            StandardPlayfield.addEntityToCell(chunk, pos, entity);
         }
-        SimulationTreeNode node = this.simualtionTreeRootNode;
 
-        hieraLoop: for (final Class<?> clazz : classHiera) {
-            for (final SimulationTreeNode child : node.getChildren()) {
-                if (child.getElementId().equals(clazz.getName())) {
-                    node = child;
-                    continue hieraLoop;
-                }
+        this.entityPositions.put(entity, pos);
+        this.typeIndex.add(entity);
+        this.modificationCount.incrementAndGet();
+        EntityPositionHook.update(entity, this, pos);
+    }
+
+    /**
+     * Remove the entity from the playfield.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private void removeEntityWhileLocked(final Position pos, final Entity entity) {
+        final long key = PlayfieldChunk.keyOf(pos.getX(), pos.getY());
+        final PlayfieldChunk chunk = this.chunks.get(key);
+        if (chunk != null) {
+            synchronized (chunk) {
+                StandardPlayfield.removeEntityFromCell(chunk, pos, entity);
             }
-            if (create) {
-                //TODO: get texture from EntityTypeRegistry
-                final SimulationTreeNode child = new SimulationTreeNode(clazz.getName(), clazz.getSimpleName(), "", false);
-                node.appendChild(child);
+            this.removeChunkIfEmpty(key, chunk);
+        }
+        this.entityPositions.remove(entity, pos);
+        this.typeIndex.remove(entity);
+        this.modificationCount.incrementAndGet();
+        EntityPositionHook.update(entity, this, null);
+    }
+
+    /**
+     * Get the node of the simulation tree for the given entity class.
+     * <p>
+     * The nodes of the classes are never removed, so they are cached. The simulation tree lock must be held.
+     * </p>
+     */
+    private SimulationTreeNode findNodeForClass(final Class<?> clazz) {
+        SimulationTreeNode node = this.simulationTreeClassNodes.get(clazz);
+        if (node != null) return node;
+
+        final Class<?> superClass = clazz.getSuperclass();
+        final SimulationTreeNode parent = Entity.class.isAssignableFrom(superClass) ? this.findNodeForClass(superClass)
+                : this.simualtionTreeRootNode;
+        for (final SimulationTreeNode child : parent.getChildren()) {
+            if (child.getElementId().equals(clazz.getName())) {
                 node = child;
-            } else return null;
+            }
+        }
+        if (node == null) {
+            //TODO: get texture from EntityTypeRegistry
+            node = new SimulationTreeNode(clazz.getName(), clazz.getSimpleName(), "", false);
+            parent.appendChild(node);
         }
+        this.simulationTreeClassNodes.put(clazz, node);
         return node;
     }
 
-    private void addEntityToSimulationTree(final Entity entity) {
-        final SimulationTreeNode newNode = new SimulationTreeNode(
-                Integer.toHexString(entity.hashCode()), entity.toString(), entity.getDrawInformation().getTextureHandle()
-        );
-        this.findNodeForEntity(entity, true).appendChild(newNode);
+    /**
+     * Add and remove the given entities to and from the simulation tree and inform the listeners.
+     * <p>
+     * The changed listener is only called once for all given entities.
+     * </p>
+     */
+    private void updateSimulationTree(final List<Entity> added, final List<Entity> removed) {
+        //There is no sidebar without a window
+        if (this.headless || (added.isEmpty() && removed.isEmpty())) return;
+        final List<SimulationTreeNode> addedNodes = new ArrayList<>(added.size());
+        for (final Entity entity : added) {
+            addedNodes.add(
+                    new SimulationTreeNode(
+                            Integer.toHexString(entity.hashCode()), entity.toString(), entity.getDrawInformation().getTextureHandle()
+                    )
+            );
+        }
+        final List<SimulationTreeNode> removedNodes = new ArrayList<>(removed.size());
+        synchronized (this.simulationTreeLock) {
+            for (int i = 0; i < added.size(); i++) {
+                this.findNodeForClass(added.get(i).getClass()).appendChild(addedNodes.get(i));
+                this.simulationTreeEntityNodes.put(added.get(i), addedNodes.get(i));
+            }
+            for (final Entity entity : removed) {
+                final SimulationTreeNode node = this.simulationTreeEntityNodes.remove(entity);
+                if (node != null) {
+                    this.findNodeForClass(entity.getClass()).removeChild(node);
+                    removedNodes.add(node);
+                }
+            }
+        }
 
-        if (this.simulationTreeEntityAddedListener != null) {
-            // TODO check for bugs with simulation tree when window is reattached or attached late
-            this.simulationTreeEntityAddedListener.accept(newNode, entity);
+        // TODO check for bugs with simulation tree when window is reattached or attached late
+        final BiConsumer<SimulationTreeNode, Entity> addedListener = this.simulationTreeEntityAddedListener;
+        if (addedListener != null) {
+            for (int i = 0; i < added.size(); i++) {
+                addedListener.accept(addedNodes.get(i), added.get(i));
+            }
+        }
+        final Consumer<SimulationTreeNode> removedListener = this.simulationTreeEntityRemovedListener;
+        if (removedListener != null) {
+            removedNodes.forEach(removedListener);
+        }
+        final Runnable changedListener = this.simulationTreeChangedListener;
+        if (changedListener != null) {
+            changedListener.run();
         }
     }
 
@@ -267,96 +625,390 @@ public class StandardPlayfield implements Playfield {
         if (pos == null) throw new IllegalArgumentException("The given pos is null.");
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
 
-        synchronized (this.playfieldLock) {
-            if (!this.entityPositions.containsKey(entity))
-                throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-
-            EntityMoveAction actionToLog = action;
+        long sourceKey = 0;
+        PlayfieldChunk sourceChunk = null;
+        long stamp = this.structureLock.readLock();
+        try {
+            while (true) {
+                final Position oldPos = this.entityPositions.get(entity);
+                if (oldPos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+
+                final long fromKey = PlayfieldChunk.keyOf(oldPos.getX(), oldPos.getY());
+                final long toKey = PlayfieldChunk.keyOf(pos.getX(), pos.getY());
+                final PlayfieldChunk from = this.chunks.get(fromKey);
+                PlayfieldChunk to = this.chunks.get(toKey);
+                // the chunk of an entity is only removed under the write lock after the entity left it
+                if (from == null) throw new IllegalStateException("The chunk of the entity" + entity + "is missing.");
+                if (to == null) {
+                    if (StampedLock.isReadLockStamp(stamp)) {
+                        // creating a chunk changes the structure, so the write lock is needed
+                        final long writeStamp = this.structureLock.tryConvertToWriteLock(stamp);
+                        if (writeStamp != 0) {
+                            stamp = writeStamp;
+                        } else {
+                            this.structureLock.unlockRead(stamp);
+                            stamp = this.structureLock.writeLock();
+                        }
+                        continue;
+                    }
+                    to = this.getOrCreateChunk(toKey);
+                }
 
-            final Position oldPos = this.entityPositions.get(entity);
+                if (this.moveEntityBetweenChunks(entity, oldPos, pos, action, fromKey, from, toKey, to)) {
+                    sourceKey = fromKey;
+                    sourceChunk = (from == to) ? null : from;
+                    break;
+                }
+            }
+            if ((sourceChunk != null) && StampedLock.isWriteLockStamp(stamp)) {
+                this.removeChunkIfEmpty(sourceKey, sourceChunk);
+            }
+        } finally {
+            this.structureLock.unlock(stamp);
+        }
 
-            if (actionToLog == null) {
-                actionToLog = new EntityTeleportAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, oldPos, pos);
-            } else {
-                if (!actionToLog.getEntity().equals(entity))
-                    throw new IllegalArgumentException("Given action wasn't caused by given entity.");
-                if (!actionToLog.from().equals(oldPos))
-                    throw new IllegalArgumentException("Given action does not start at current position of given entity.");
-                if (!actionToLog.to().equals(pos)) throw new IllegalArgumentException("Given action does not end at given pos.");
+        if ((sourceChunk != null) && !StampedLock.isWriteLockStamp(stamp)) {
+            final boolean empty;
+            synchronized (sourceChunk) {
+                empty = sourceChunk.isEmpty();
+            }
+            if (empty) {
+                final long writeStamp = this.structureLock.writeLock();
+                try {
+                    this.removeChunkIfEmpty(sourceKey, sourceChunk);
+                } finally {
+                    this.structureLock.unlockWrite(writeStamp);
+                }
             }
+        }
+        this.drawEntities();
+    }
 
-            this.removeEntityFromCell(oldPos, entity);
-            this.addEntityToCell(pos, entity);
-            this.entityPositions.put(entity, pos);
+    /**
+     * Move the entity between the given chunks while holding the monitors of both.
+     * <p>
+     * The monitors are always taken in the order of the chunk keys, so two opposite moves cannot deadlock. The
+     * structure lock must be held.
+     * </p>
+     *
+     * @return whether the entity was moved; false if the entity was not at the given old position anymore
+     */
+    private boolean moveEntityBetweenChunks(
+            final Entity entity, final Position oldPos, final Position pos, final EntityMoveAction action, final long fromKey,
+            final PlayfieldChunk from, final long toKey, final PlayfieldChunk to
+    ) {
+        final PlayfieldChunk first = (fromKey <= toKey) ? from : to;
+        final PlayfieldChunk second = (fromKey <= toKey) ? to : from;
+        synchronized (first) {
+            synchronized (second) {
+                if (!oldPos.equals(this.entityPositions.get(entity))) return false;
+
+                EntityMoveAction actionToLog = action;
+
+                if (actionToLog == null) {
+                    actionToLog = new EntityTeleportAction(
+                            this.getSimulation().getSimulationClock().getLastTickNumber(), entity, oldPos, pos
+                    );
+                } else {
+                    if (!actionToLog.getEntity().equals(entity))
+                        throw new IllegalArgumentException("Given action wasn't caused by given entity.");
+                    if (!actionToLog.from().equals(oldPos))
+                        throw new IllegalArgumentException("Given action does not start at current position of given entity.");
+                    if (!actionToLog.to().equals(pos)) throw new IllegalArgumentException("Given action does not end at given pos.");
+                }
 
-            this.getSimulation().getActionLog().logAction(actionToLog);
+                this.relocateEntity(entity, oldPos, pos, from, to);
 
+                // logged while the chunks are locked, so the moves of one entity are logged in order
+                this.getSimulation().getActionLog().logAction(actionToLog);
+                return true;
+            }
         }
-        this.drawEntities();
     }
 
-    private void removeEntityFromSimulationTree(final Entity entity) {
-        final SimulationTreeNode node = this.findNodeForEntity(entity, false);
-
-        if (node == null) return;
+    /**
+     * Move the entity from its old cell to its new cell.
+     * <p>
+     * The structure lock and the monitors of both chunks must be held. The entity stays on the playfield the whole
+     * time, so readers which do not lock never see it removed.
+     * </p>
+     */
+    private void relocateEntity(
+            final Entity entity, final Position oldPos, final Position pos, final PlayfieldChunk from, final PlayfieldChunk to
+    ) {
+        StandardPlayfield.removeEntityFromCell(from, oldPos, entity);
+        StandardPlayfield.addEntityToCell(to, pos, entity);
+        this.entityPositions.put(entity, pos);
+        this.modificationCount.incrementAndGet();
+        EntityPositionHook.update(entity, this, pos);
+    }
 
-        for (final SimulationTreeNode child : node.getChildren()) {
-            if (child.getElementId().equals(Integer.toHexString(entity.hashCode()))) {
-                node.removeChild(child);
-                if (this.simulationTreeEntityRemovedListener != null) {
-                    // TODO check for bugs with simulation tree when window is reattached or attached late
-                    this.simulationTreeEntityRemovedListener.accept(child);
-                }
+    /**
+     * Move the entity to the given position.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private void moveEntityWhileLocked(final Position oldPos, final Position pos, final Entity entity) {
+        final long fromKey = PlayfieldChunk.keyOf(oldPos.getX(), oldPos.getY());
+        final long toKey = PlayfieldChunk.keyOf(pos.getX(), pos.getY());
+        final PlayfieldChunk from = this.getOrCreateChunk(fromKey);
+        final PlayfieldChunk to = this.getOrCreateChunk(toKey);
+        synchronized ((fromKey <= toKey) ? from : to) {
+            synchronized ((fromKey <= toKey) ? to : from) {
+                this.relocateEntity(entity, oldPos, pos, from, to);
             }
         }
+        if (from != to) {
+            this.removeChunkIfEmpty(fromKey, from);
+        }
     }
 
     @Override
     public void removeEntity(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
 
-        synchronized (this.playfieldLock) {
-            if (!this.entityPositions.containsKey(entity))
-                throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-
+        final long stamp = this.structureLock.writeLock();
+        try {
             final Position pos = this.entityPositions.get(entity);
-            this.removeEntityFromCell(pos, entity);
-            this.entityPositions.remove(entity, pos);
+            if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+            this.removeEntityWhileLocked(pos, entity);
+        } finally {
+            this.structureLock.unlockWrite(stamp);
+        }
 
-            this.getSimulation().getActionLog()
-                    .logAction(new EntityDespawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this));
+        this.getSimulation().getActionLog()
+                .logAction(new EntityDespawnAction(this.getSimulation().getSimulationClock().getLastTickNumber(), entity, this));
 
-            this.removeEntityFromSimulationTree(entity);
+        this.updateSimulationTree(List.of(), List.of(entity));
+        this.drawEntities();
+    }
 
+    @Override
+    public void applyBatch(final PlayfieldBatch batch) {
+        if (batch == null) throw new IllegalArgumentException("The given batch is null.");
+        this.applyBatch(batch, false);
+    }
+
+    /**
+     * Apply the given batch.
+     *
+     * @param batch
+     *     The batch to apply
+     * @param replaceAll
+     *     Whether to remove all entities, which are on this playfield when the batch is applied, before the operations
+     *     of the batch; the removed entities are collected under the same lock which applies the batch
+     */
+    private void applyBatch(final PlayfieldBatch batch, final boolean replaceAll) {
+        final List<PlayfieldBatch.Operation> batchOperations = List.copyOf(batch.getOperations());
+        if (batchOperations.isEmpty() && !replaceAll) return;
+
+        final long tick = this.getSimulation().getSimulationClock().getLastTickNumber();
+        final Map<Entity, Boolean> wasOnPlayfield = new HashMap<>();
+        final List<Entity> newEntities = new ArrayList<>();
+        List<PlayfieldBatch.Operation> operations;
+        long stamp = this.structureLock.writeLock();
+        try {
+            operations = this.operationsToApply(batchOperations, replaceAll);
+            this.checkBatch(operations);
+            // only entities of a valid batch are initialized; the ones added by their first operation are new
+            final Set<Entity> seen = new HashSet<>();
+            for (final PlayfieldBatch.Operation operation : operations) {
+                if (seen.add(operation.getEntity()) && (operation.getType() == PlayfieldBatch.OperationType.ADD)) {
+                    newEntities.add(operation.getEntity());
+                }
+            }
+            this.entitiesBeingAdded.addAll(newEntities);
+        } finally {
+            this.structureLock.unlockWrite(stamp);
+        }
+
+        this.initEntities(newEntities);
+
+        final List<Action> actions;
+        stamp = this.structureLock.writeLock();
+        try {
+            this.entitiesBeingAdded.removeAll(newEntities);
+            // the playfield may have changed while the new entities were initialized
+            operations = this.operationsToApply(batchOperations, replaceAll);
+            this.checkBatch(operations);
+            actions = new ArrayList<>(operations.size());
+            for (final PlayfieldBatch.Operation operation : operations) {
+                final Entity entity = operation.getEntity();
+                final Position pos = operation.getPosition();
+                final Position oldPos = this.entityPositions.get(entity);
+                wasOnPlayfield.putIfAbsent(entity, oldPos != null);
+                switch (operation.getType()) {
+                    case ADD:
+                        this.addEntityWhileLocked(pos, entity);
+                        actions.add(new EntitySpawnAction(tick, entity, this, pos));
+                        break;
+                    case MOVE:
+                        this.moveEntityWhileLocked(oldPos, pos, entity);
+                        actions.add(new EntityTeleportAction(tick, entity, oldPos, pos));
+                        break;
+                    case REMOVE:
+                        this.removeEntityWhileLocked(oldPos, entity);
+                        actions.add(new EntityDespawnAction(tick, entity, this));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown operation type: " + operation.getType());
+                }
+            }
+        } finally {
+            this.structureLock.unlockWrite(stamp);
         }
+
+        this.getSimulation().getActionLog().logActions(actions);
+
+        final List<Entity> added = new ArrayList<>();
+        final List<Entity> removed = new ArrayList<>();
+        wasOnPlayfield.forEach((entity, wasOn) -> {
+            final boolean isOn = this.entityPositions.containsKey(entity);
+            if (!wasOn && isOn) {
+                added.add(entity);
+            } else if (wasOn && !isOn) {
+                removed.add(entity);
+            }
+        });
+        this.updateSimulationTree(added, removed);
         this.drawEntities();
     }
 
+    @Override
+    public void saveState(final Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("The given file is null.");
+        final PlayfieldStateSerializer serializer = new PlayfieldStateSerializer(this.getSimulation().getEntityTypeRegistry());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            serializer.writePlayfield(out, this.getSnapshot());
+        }
+    }
+
+    @Override
+    public void restoreState(final Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("The given file is null.");
+        final PlayfieldStateSerializer serializer = new PlayfieldStateSerializer(this.getSimulation().getEntityTypeRegistry());
+        final PlayfieldBatch batch = new PlayfieldBatch();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            serializer.readPlayfield(new ByteBufferDataInput(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())), batch);
+        }
+        // the current entities are collected under the lock which applies the batch, so none added meanwhile is kept
+        this.applyBatch(batch, true);
+    }
+
+    /**
+     * Must be called while holding the structure write lock.
+     *
+     * @return the given operations, preceded by removing all entities on this playfield if requested
+     */
+    private List<PlayfieldBatch.Operation> operationsToApply(
+            final List<PlayfieldBatch.Operation> batchOperations, final boolean replaceAll
+    ) {
+        if (!replaceAll) return batchOperations;
+        final PlayfieldBatch removal = new PlayfieldBatch();
+        for (final Entity entity : this.typeIndex.get(Entity.class, true)) {
+            removal.removeEntity(entity);
+        }
+        final List<PlayfieldBatch.Operation> operations = new ArrayList<>(removal.getOperations());
+        operations.addAll(batchOperations);
+        return operations;
+    }
+
+    /**
+     * Initialize the given entities, which were marked as being added, without holding a lock. If an initialization
+     * fails, the entities are no longer marked.
+     */
+    private void initEntities(final List<Entity> newEntities) {
+        boolean initialized = false;
+        try {
+            for (final Entity entity : newEntities) {
+                entity.initOnPlayfield(this);
+            }
+            initialized = true;
+        } finally {
+            if (!initialized) {
+                final long stamp = this.structureLock.writeLock();
+                try {
+                    this.entitiesBeingAdded.removeAll(newEntities);
+                } finally {
+                    this.structureLock.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that all operations can be applied in order.
+     * <p>
+     * The structure write lock must be held.
+     * </p>
+     */
+    private void checkBatch(final List<PlayfieldBatch.Operation> operations) {
+        final Map<Entity, Boolean> onPlayfield = new HashMap<>();
+        for (final PlayfieldBatch.Operation operation : operations) {
+            final Entity entity = operation.getEntity();
+            final boolean isOn = onPlayfield.computeIfAbsent(entity, this.entityPositions::containsKey);
+            if (operation.getType() == PlayfieldBatch.OperationType.ADD) {
+                if (isOn || this.entitiesBeingAdded.contains(entity))
+                    throw new EntityAlreadyOnFieldExcpetion("The given entity" + entity + "is already on this playfield.");
+                onPlayfield.put(entity, true);
+            } else {
+                if (!isOn) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+                onPlayfield.put(entity, operation.getType() == PlayfieldBatch.OperationType.MOVE);
+            }
+        }
+    }
+
     @Override
     public Position getEntityPosition(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
-        synchronized (this.playfieldLock) {
-            final Position pos = this.entityPositions.get(entity);
-            if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
-            return pos;
-        }
+        final Position pos = this.entityPositions.get(entity);
+        if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+        return pos;
     }
 
     @Override
     public boolean containsEntity(final Entity entity) {
         if (entity == null) throw new IllegalArgumentException("The given entity is null.");
-        synchronized (this.playfieldLock) {
-            return this.entityPositions.containsKey(entity);
-        }
+        return this.entityPositions.containsKey(entity);
     }
 
     @Override
     public boolean isSolidEntityAt(final Position pos) {
-        final List<SolidEntity> solidEntitiesAtPos = this.getEntitiesOfTypeAt(pos, SolidEntity.class, true);
-        for (final SolidEntity entity : solidEntitiesAtPos) {
-            if (entity.isCurrentlySolid()) return true;
+        if (pos == null) throw new IllegalArgumentException("The given pos is null.");
+        return this.isSolidEntityAt(pos.getX(), pos.getY());
+    }
+
+    @Override
+    public boolean isSolidEntityAt(final int x, final int y) {
+        final long key = PlayfieldChunk.keyOf(x, y);
+        while (true) {
+            final PlayfieldChunk chunk = this.getChunk(key);
+            if (chunk == null) return false;
+            synchronized (chunk) {
+                if (!chunk.isDetached()) return chunk.isSolid(x, y);
+            }
+        }
+    }
+
+    @Override
+    public void notifySolidityChanged(final SolidEntity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        while (true) {
+            final Position pos = this.entityPositions.get(entity);
+            if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not on this playfield.");
+            final PlayfieldChunk chunk = this.getChunk(PlayfieldChunk.keyOf(pos.getX(), pos.getY()));
+            if (chunk == null) {
+                continue; // the entity was moved concurrently
+            }
+            synchronized (chunk) {
+                if (!chunk.isDetached()) {
+                    // if the entity moved away concurrently, the move has already counted it in its new cell
+                    chunk.updateSolidCount(pos.getX(), pos.getY());
+                    return;
+                }
+            }
         }
-        return false;
     }
 
     /**
@@ -404,6 +1056,29 @@ public class StandardPlayfield implements Playfield {
         this.simulationTreeEntityRemovedListener = null;
     }
 
+    /**
+     * Set the listener for when the simulation tree changed.
+     * <p>
+     * The listener is called once after each change, after the entity added and removed listeners. A change caused by
+     * {@link #applyBatch(PlayfieldBatch)} only calls it once.
+     * </p>
+     *
+     * @param listener
+     *     the listener to set
+     */
+    public void setSimulationTreeChangedListener(final Runnable listener) {
+        if ((this.simulationTreeChangedListener == null) || (listener == null)) {
+            this.simulationTreeChangedListener = listener;
+        } else throw new ListenerSetException();
+    }
+
+    /**
+     * Remove the listener for when the simulation tree changed.
+     */
+    public void removeSimulationTreeChangedListener() {
+        this.simulationTreeChangedListener = null;
+    }
+
     /**
      * Set the listener for when the drawables on the playfield changed. This listener is responsible for informing the
      * UI.
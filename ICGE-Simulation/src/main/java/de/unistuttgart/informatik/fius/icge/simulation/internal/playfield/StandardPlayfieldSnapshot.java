@@ -0,0 +1,183 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldSnapshot;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+
+
+/**
+ * The standard implementation of {@link PlayfieldSnapshot}.
+ * <p>
+ * The snapshot consists of the snapshots of all chunks. The entity list and the drawables are collected when the
+ * snapshot is created, the position lookup is only computed when it is first requested.
+ * </p>
+ * <p>
+ * The drawables are requested from the entities after the chunks were collected and the playfield was unlocked, because
+ * the entities may query the playfield for it. So they may already show a later state than the positions of this
+ * snapshot; see {@link PlayfieldSnapshot#getDrawables()}.
+ * </p>
+ *
+ * @author Tim Neumann
+ */
+public class StandardPlayfieldSnapshot implements PlayfieldSnapshot {
+    private final long                     tickNumber;
+    private final long                     modificationCount;
+    private final long                     drawCount;
+    private final PlayfieldChunkSnapshot[] chunks;
+    private final List<Entity>             entities;
+    private final List<Drawable>           drawables;
+
+    private volatile Map<Entity, Position> positions;
+
+    /**
+     * Create a new snapshot.
+     *
+     * @param tickNumber
+     *     The number of the last tick before the snapshot was taken
+     * @param modificationCount
+     *     The modification count of the playfield when the snapshot was taken
+     * @param drawCount
+     *     The draw count of the playfield before the drawables are collected
+     * @param chunks
+     *     The snapshots of all chunks of the playfield; must not be modified afterwards
+     */
+    public StandardPlayfieldSnapshot(
+            final long tickNumber, final long modificationCount, final long drawCount, final PlayfieldChunkSnapshot[] chunks
+    ) {
+        this.tickNumber = tickNumber;
+        this.modificationCount = modificationCount;
+        this.drawCount = drawCount;
+        this.chunks = chunks;
+        this.entities = StandardPlayfieldSnapshot.collectEntities(chunks);
+        this.drawables = StandardPlayfieldSnapshot.collectDrawables(this.entities);
+    }
+
+    private StandardPlayfieldSnapshot(
+            final StandardPlayfieldSnapshot original, final long tickNumber, final long drawCount, final List<Drawable> drawables
+    ) {
+        this.tickNumber = tickNumber;
+        this.modificationCount = original.modificationCount;
+        this.drawCount = drawCount;
+        this.chunks = original.chunks;
+        this.entities = original.entities;
+        this.positions = original.positions;
+        this.drawables = drawables;
+    }
+
+    /**
+     * Create a copy of this snapshot for a later tick, which shares the entities and their positions with this
+     * snapshot. The drawables are only collected again if the draw count changed.
+     *
+     * @param newTickNumber
+     *     The tick number of the new snapshot
+     * @param newDrawCount
+     *     The draw count of the playfield before the drawables are collected
+     * @return the new snapshot
+     */
+    public StandardPlayfieldSnapshot withTickNumber(final long newTickNumber, final long newDrawCount) {
+        final List<Drawable> newDrawables = (newDrawCount == this.drawCount) ? this.drawables
+                : StandardPlayfieldSnapshot.collectDrawables(this.entities);
+        return new StandardPlayfieldSnapshot(this, newTickNumber, newDrawCount, newDrawables);
+    }
+
+    /**
+     * @return the modification count of the playfield when this snapshot was taken
+     */
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    /**
+     * @return the draw count of the playfield when the drawables of this snapshot were collected
+     */
+    public long getDrawCount() {
+        return this.drawCount;
+    }
+
+    private static List<Entity> collectEntities(final PlayfieldChunkSnapshot[] chunks) {
+        int size = 0;
+        for (final PlayfieldChunkSnapshot chunk : chunks) {
+            size += chunk.size();
+        }
+        final List<Entity> list = new ArrayList<>(size);
+        for (final PlayfieldChunkSnapshot chunk : chunks) {
+            for (int i = 0; i < chunk.size(); i++) {
+                list.add(chunk.getEntity(i));
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static List<Drawable> collectDrawables(final List<Entity> entities) {
+        final List<Drawable> list = new ArrayList<>(entities.size());
+        for (final Entity entity : entities) {
+            try {
+                list.add(entity.getDrawInformation());
+            } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
+                //Entity has been removed from the field after this snapshot was taken.
+                //Just don't draw it and ignore the exception.
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public long getTickNumber() {
+        return this.tickNumber;
+    }
+
+    @Override
+    public List<Entity> getEntities() {
+        return this.entities;
+    }
+
+    private Map<Entity, Position> getPositions() {
+        Map<Entity, Position> result = this.positions;
+        if (result == null) {
+            result = new HashMap<>();
+            for (final PlayfieldChunkSnapshot chunk : this.chunks) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.put(chunk.getEntity(i), chunk.getPosition(i));
+                }
+            }
+            this.positions = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsEntity(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        return this.getPositions().containsKey(entity);
+    }
+
+    @Override
+    public Position getEntityPosition(final Entity entity) {
+        if (entity == null) throw new IllegalArgumentException("The given entity is null.");
+        final Position pos = this.getPositions().get(entity);
+        if (pos == null) throw new EntityNotOnFieldException("The given entity" + entity + "is not in this snapshot.");
+        return pos;
+    }
+
+    @Override
+    public List<Drawable> getDrawables() {
+        return this.drawables;
+    }
+}
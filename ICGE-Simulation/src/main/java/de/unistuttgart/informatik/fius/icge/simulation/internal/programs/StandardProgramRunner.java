@@ -14,17 +14,23 @@ import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinWorkerThread;
-import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.unistuttgart.informatik.fius.icge.simulation.programs.Program;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
 
 
 /**
  * The standard runner for {@link Program} instances.
+ * <p>
+ * Programs spend most of their time blocked while waiting for the simulation clock, so every program gets its own
+ * thread. On Java 21 and newer virtual threads are used, which makes it possible to run tens of thousands of programs
+ * at once. On older versions a cached pool of daemon threads is used instead.
+ * </p>
  *
  * @author Fabian Bühler
  */
@@ -32,12 +38,19 @@ public class StandardProgramRunner {
 
     private ExecutorService executor;
 
+    private final StandardSimulationClock clock;
+
     private final Map<Entity, CompletableFuture<Void>> runningPrograms = new HashMap<>();
 
     /**
      * Standard constructor setting up the executor for the Futures.
+     *
+     * @param clock
+     *     The clock of the simulation, the threads running programs are registered with
      */
-    public StandardProgramRunner() {
+    public StandardProgramRunner(final StandardSimulationClock clock) {
+        if (clock == null) throw new IllegalArgumentException("The given clock is null.");
+        this.clock = clock;
         this.executor = this.createExecutor();
     }
 
@@ -47,14 +60,37 @@ public class StandardProgramRunner {
      * @return the executor service
      */
     private ExecutorService createExecutor() {
-        final ForkJoinWorkerThreadFactory factory = pool -> {
-            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
-            worker.setName("ProgramThread-" + worker.getPoolIndex());
+        final ExecutorService virtualThreadExecutor = StandardProgramRunner.createVirtualThreadExecutor();
+        if (virtualThreadExecutor != null) return virtualThreadExecutor;
+
+        final AtomicLong threadCount = new AtomicLong();
+        final ThreadFactory factory = runnable -> {
+            final Thread worker = new Thread(runnable, "ProgramThread-" + threadCount.getAndIncrement());
             worker.setDaemon(true);
             return worker;
         };
+        return Executors.newCachedThreadPool(factory);
+    }
 
-        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), factory, null, false);
+    /**
+     * Create an executor starting a new virtual thread for each program.
+     * <p>
+     * The API is accessed via reflection, because this project is compiled for Java 11.
+     * </p>
+     *
+     * @return the executor service or null if virtual threads are not available
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "ProgramThread-", 0L);
+            final ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (@SuppressWarnings("unused") final ReflectiveOperationException | ClassCastException e) {
+            //Virtual threads are not available (or only as a disabled preview feature)
+            return null;
+        }
     }
 
     /**
@@ -80,8 +116,10 @@ public class StandardProgramRunner {
             }
         }
 
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
         final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
             try {
+                this.clock.registerActor(turn);
                 program.run(entity);
             } catch (@SuppressWarnings("unused") final UncheckedInterruptedException e) {
                 System.out.println("The running program " + program.toString() + " for entity " + entity.toString() + " was stopped.");
@@ -92,8 +130,12 @@ public class StandardProgramRunner {
                 System.out.println("The following exception happened while running a program for the entity " + entity.toString());
                 e.printStackTrace();
                 System.out.println("----------------------------------------------");
+            } finally {
+                this.clock.unregisterActor();
             }
         }, this.executor);
+        // release the turn if the program is stopped before it could start
+        future.whenComplete((result, throwable) -> this.clock.cancelActorTurn(turn));
 
         // set the running program in the entityMap
         this.runningPrograms.put(entity, future);
@@ -17,6 +17,7 @@ import java.util.concurrent.ThreadFactory;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
 import de.unistuttgart.informatik.fius.icge.simulation.exception.UncheckedInterruptedException;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.StandardSimulationClock;
 import de.unistuttgart.informatik.fius.icge.simulation.tasks.Task;
 
 
@@ -29,8 +30,9 @@ public class StandardTaskRunner {
 
     private final ExecutorService executor;
 
-    private final Task       taskToRun;
-    private final Simulation sim;
+    private final Task                    taskToRun;
+    private final Simulation              sim;
+    private final StandardSimulationClock clock;
 
     private CompletableFuture<Boolean> taskResult;
 
@@ -41,11 +43,14 @@ public class StandardTaskRunner {
      *     The Task instance to run
      * @param sim
      *     The simulation to run this Task instance with
+     * @param clock
+     *     The clock of the simulation, the thread running the task is registered with
      */
-    public StandardTaskRunner(final Task taskToRun, final Simulation sim) {
-        if ((taskToRun == null) || (sim == null)) throw new IllegalArgumentException("Argument is null.");
+    public StandardTaskRunner(final Task taskToRun, final Simulation sim, final StandardSimulationClock clock) {
+        if ((taskToRun == null) || (sim == null) || (clock == null)) throw new IllegalArgumentException("Argument is null.");
         this.taskToRun = taskToRun;
         this.sim = sim;
+        this.clock = clock;
         final ThreadFactory factory = runnable -> {
             Thread worker = new Thread(runnable, "TaskThread-" + taskToRun.toString());
             return worker;
@@ -65,13 +70,17 @@ public class StandardTaskRunner {
      */
     public CompletableFuture<Boolean> runTask() {
         if (this.taskResult != null) return this.taskResult;
-        this.taskResult = CompletableFuture.supplyAsync(this::executeTask, this.executor);
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+        this.taskResult = CompletableFuture.supplyAsync(() -> this.executeTask(turn), this.executor);
+        // release the turn if the task is cancelled before it could start
+        this.taskResult.whenComplete((result, throwable) -> this.clock.cancelActorTurn(turn));
 
         return this.taskResult;
     }
 
-    private boolean executeTask() {
+    private boolean executeTask(final StandardSimulationClock.ActorTurn turn) {
         try {
+            this.clock.registerActor(turn);
             this.taskToRun.run(this.sim);
             return true;
         } catch (@SuppressWarnings("unused") final UncheckedInterruptedException e) {
@@ -93,6 +102,8 @@ public class StandardTaskRunner {
             e.printStackTrace();
             System.out.println("----------------------------------------------");
             return false;
+        } finally {
+            this.clock.unregisterActor();
         }
     }
 
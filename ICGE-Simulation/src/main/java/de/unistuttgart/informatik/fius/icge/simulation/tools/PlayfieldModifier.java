@@ -12,6 +12,7 @@ package de.unistuttgart.informatik.fius.icge.simulation.tools;
 import java.util.function.Supplier;
 
 import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldBatch;
 import de.unistuttgart.informatik.fius.icge.simulation.Position;
 import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
 
@@ -48,6 +49,9 @@ public class PlayfieldModifier {
 
     /**
      * Place the given number of entities supplied by the given factory at the given location.
+     * <p>
+     * All entities are placed with a single {@link PlayfieldBatch}.
+     * </p>
      *
      * @param entityFactory
      *     The factory to get the entities from
@@ -57,13 +61,18 @@ public class PlayfieldModifier {
      *     The position to place the entities at
      */
     public void placeMultipleEntitiesAt(final Supplier<? extends Entity> entityFactory, final int count, final Position position) {
+        final PlayfieldBatch batch = new PlayfieldBatch();
         for (int i = 0; i < count; i++) {
-            placeEntityAt(entityFactory.get(), position);
+            batch.addEntity(position, entityFactory.get());
         }
+        this.playfield.applyBatch(batch);
     }
 
     /**
      * Place an entity supplied by the given factory at each of the given positions
+     * <p>
+     * All entities are placed with a single {@link PlayfieldBatch}.
+     * </p>
      *
      * @param entityFactory
      *     The factory to get the entities from
@@ -71,8 +80,10 @@ public class PlayfieldModifier {
      *     A list of positions to place the entities at
      */
     public void placeEntityAtEachPosition(final Supplier<? extends Entity> entityFactory, Iterable<Position> positions) {
+        final PlayfieldBatch batch = new PlayfieldBatch();
         for (Position pos : positions) {
-            placeEntityAt(entityFactory.get(), pos);
+            batch.addEntity(pos, entityFactory.get());
         }
+        this.playfield.applyBatch(batch);
     }
 }
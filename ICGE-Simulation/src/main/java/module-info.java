@@ -9,6 +9,7 @@
  */
 module de.unistuttgart.informatik.fius.icge.simulation {
     requires transitive de.unistuttgart.informatik.fius.icge.ui;
+    requires java.management;
 
     exports de.unistuttgart.informatik.fius.icge.simulation;
     exports de.unistuttgart.informatik.fius.icge.simulation.entity;
@@ -0,0 +1,370 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationBuilder;
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationClock;
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationClock.ClockMode;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.programs.StandardProgramRunner;
+
+
+/**
+ * Test class for the {@link StandardSimulationClock}
+ *
+ * @author Tim Neumann
+ */
+class StandardSimulationClockTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private Simulation              simulation;
+    private StandardSimulationClock clock;
+    private TestEntity              entity;
+
+    /**
+     * Build a headless simulation with a deterministic clock and add an entity to it.
+     */
+    @BeforeEach
+    public void setup() {
+        final SimulationBuilder builder = new SimulationBuilder();
+        builder.setClockMode(ClockMode.DETERMINISTIC);
+        builder.setHeadless(true);
+        builder.buildSimulation();
+        this.simulation = builder.getBuiltSimulation();
+        this.clock = (StandardSimulationClock) this.simulation.getSimulationClock();
+        this.entity = new TestEntity();
+        this.simulation.getPlayfield().addEntity(new Position(0, 0), this.entity);
+    }
+
+    /**
+     * Stop the simulation.
+     */
+    @AfterEach
+    public void tearDown() {
+        this.simulation.stop();
+    }
+
+    /**
+     * Test that a turn which is cancelled before its actor registered does not block the clock.
+     */
+    @Test
+    public void testCancelledTurnDoesNotBlockClock() {
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+        this.clock.cancelActorTurn(turn);
+        final long lastTick = this.clock.getLastTickNumber();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> this.clock.advance(3));
+        Assertions.assertTrue(this.clock.getLastTickNumber() > lastTick);
+    }
+
+    /**
+     * Test that a program which is stopped before it started does not block the clock.
+     */
+    @Test
+    public void testProgramStoppedBeforeStartDoesNotBlockClock() {
+        final StandardProgramRunner runner = new StandardProgramRunner(this.clock);
+        runner.run(entity -> entity.sleep(1), this.entity);
+        runner.stopAll();
+        final long lastTick = this.clock.getLastTickNumber();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> this.clock.advance(3));
+        Assertions.assertTrue(this.clock.getLastTickNumber() > lastTick);
+    }
+
+    /**
+     * Test that the clock waits for the actors to become idle and runs them in the order they were started.
+     */
+    @Test
+    public void testActorsRunInOrder() {
+        final StandardProgramRunner runner = new StandardProgramRunner(this.clock);
+        final List<String> log = Collections.synchronizedList(new ArrayList<>());
+        final TestEntity second = new TestEntity();
+        this.simulation.getPlayfield().addEntity(new Position(1, 0), second);
+        runner.run(entity -> {
+            for (int i = 0; i < 3; i++) {
+                entity.sleep(1);
+                log.add("first" + i);
+            }
+        }, this.entity);
+        runner.run(entity -> {
+            for (int i = 0; i < 3; i++) {
+                entity.sleep(1);
+                log.add("second" + i);
+            }
+        }, second);
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> this.clock.advance(5));
+        Assertions.assertEquals(List.of("first0", "second0", "first1", "second1", "first2", "second2"), log);
+    }
+
+    /**
+     * Test that an actor waiting for an operation of another actor on the same entity counts as idle.
+     */
+    @Test
+    public void testActorWaitingForOtherActorIsIdle() {
+        final List<CompletableFuture<Void>> ends = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+            ends.add(CompletableFuture.runAsync(() -> {
+                try {
+                    this.clock.registerActor(turn);
+                    this.entity.sleep(2);
+                } finally {
+                    this.clock.unregisterActor();
+                }
+            }));
+        }
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            this.clock.advance(6);
+            CompletableFuture.allOf(ends.toArray(new CompletableFuture[0])).join();
+        });
+    }
+
+    /**
+     * Test that an actor blocked outside of the simulation counts as idle and continues in a later tick.
+     */
+    @Test
+    public void testBlockedActorIsIdle() {
+        final CompletableFuture<Void> blocker = new CompletableFuture<>();
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+        final CompletableFuture<Void> end = CompletableFuture.runAsync(() -> {
+            try {
+                this.clock.registerActor(turn);
+                this.clock.awaitIdle(blocker);
+                this.entity.sleep(1);
+            } finally {
+                this.clock.unregisterActor();
+            }
+        });
+        final long lastTick = this.clock.getLastTickNumber();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> this.clock.advance(3));
+        Assertions.assertTrue(this.clock.getLastTickNumber() > lastTick);
+        Assertions.assertFalse(end.isDone());
+
+        blocker.complete(null);
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            this.clock.advance(3);
+            end.join();
+        });
+    }
+
+    /**
+     * Test that an actor blocking outside of the clock does not stop the simulation once the busy actor timeout has
+     * passed, and that it is waited for again after it scheduled its next operation.
+     */
+    @Test
+    public void testActorBlockingOutsideOfClockDoesNotHang() {
+        this.clock.setBusyActorTimeout(100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+        final CompletableFuture<Void> end = CompletableFuture.runAsync(() -> {
+            try {
+                this.clock.registerActor(turn);
+                release.await();
+                this.entity.sleep(1);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                this.clock.unregisterActor();
+            }
+        });
+        final long lastTick = this.clock.getLastTickNumber();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> this.clock.advance(3));
+        Assertions.assertTrue(this.clock.getLastTickNumber() > lastTick);
+        Assertions.assertFalse(end.isDone());
+
+        release.countDown();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            while (!end.isDone()) {
+                this.clock.advance(1);
+            }
+            end.join();
+        });
+    }
+
+    /**
+     * Test that the clock does not produce the next tick while an actor is doing work.
+     *
+     * @throws InterruptedException
+     *     if the test is interrupted
+     */
+    @Test
+    public void testBusyActorDelaysNextTick() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final StandardSimulationClock.ActorTurn turn = this.clock.createActorTurn();
+        final CompletableFuture<Void> end = CompletableFuture.runAsync(() -> {
+            try {
+                this.clock.registerActor(turn);
+                release.await();
+                this.entity.sleep(1);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                this.clock.unregisterActor();
+            }
+        });
+        final CompletableFuture<Void> driver = CompletableFuture.runAsync(() -> this.clock.advance(2));
+        Thread.sleep(200);
+        Assertions.assertFalse(driver.isDone());
+
+        release.countDown();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            driver.join();
+            this.clock.advance(2);
+            end.join();
+        });
+    }
+
+    /**
+     * Test that run until checks the condition before the first and after every tick and stops after the given number
+     * of ticks.
+     */
+    @Test
+    public void testRunUntil() {
+        final AtomicInteger checks = new AtomicInteger();
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            Assertions.assertTrue(this.clock.runUntil(simulation -> checks.incrementAndGet() > 3, 10));
+        });
+        Assertions.assertEquals(4, checks.get());
+
+        checks.set(0);
+        Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+            Assertions.assertFalse(this.clock.runUntil(simulation -> {
+                checks.incrementAndGet();
+                return false;
+            }, 2));
+        });
+        Assertions.assertEquals(3, checks.get());
+    }
+
+    /**
+     * Test that a fast forward clock waits one game tick period before the next tick if nothing is pending, but does
+     * not wait while actors have scheduled operations.
+     *
+     * @throws InterruptedException
+     *     if the test is interrupted
+     */
+    @Test
+    public void testFastForwardOnlyWaitsWhenIdle() throws InterruptedException {
+        final Simulation fastSimulation = StandardSimulationClockTest.buildFastForwardSimulation();
+        try {
+            final StandardSimulationClock fastClock = (StandardSimulationClock) fastSimulation.getSimulationClock();
+            fastClock.setPeriod(100 / SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK);
+            final long idleStart = fastClock.getLastTickNumber();
+            fastClock.start();
+            Thread.sleep(1000);
+            fastClock.stop();
+            final long idleTicks = fastClock.getLastTickNumber() - idleStart;
+            Assertions.assertTrue((idleTicks >= 1) && (idleTicks <= 20), "Idle ticks: " + idleTicks);
+
+            // with one tick per minute, these ticks can only be produced by not waiting
+            fastClock.setPeriod(60_000 / SimulationClock.RENDER_TICKS_PER_SIMULATION_TICK);
+            final TestEntity fastEntity = new TestEntity();
+            fastSimulation.getPlayfield().addEntity(new Position(0, 0), fastEntity);
+            final StandardSimulationClock.ActorTurn turn = fastClock.createActorTurn();
+            final CompletableFuture<Void> end = CompletableFuture.runAsync(() -> {
+                try {
+                    fastClock.registerActor(turn);
+                    fastEntity.sleep(20);
+                } finally {
+                    fastClock.unregisterActor();
+                }
+            });
+            fastClock.start();
+            Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> end.join());
+        } finally {
+            fastSimulation.stop();
+        }
+    }
+
+    /**
+     * Test that the operations of a tick are released one after another by default and at once if enabled.
+     *
+     * @throws Exception
+     *     When anything goes wrong
+     */
+    @Test
+    public void testOperationsAreSerialByDefault() throws Exception {
+        Assertions.assertEquals(1, this.maxConcurrentOperations(false));
+        Assertions.assertEquals(3, this.maxConcurrentOperations(true));
+    }
+
+    private int maxConcurrentOperations(final boolean parallel) throws Exception {
+        final Simulation fastSimulation = StandardSimulationClockTest.buildFastForwardSimulation();
+        try {
+            final StandardSimulationClock fastClock = (StandardSimulationClock) fastSimulation.getSimulationClock();
+            fastClock.setParallelOperations(parallel);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final CountDownLatch allRunning = new CountDownLatch(3);
+            final List<CompletableFuture<Void>> ends = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final StandardSimulationClock.ActorTurn turn = fastClock.createActorTurn();
+                ends.add(CompletableFuture.runAsync(() -> {
+                    fastClock.registerActor(turn);
+                    final CompletableFuture<Void> endOfOperation = new CompletableFuture<>();
+                    try {
+                        fastClock.scheduleOperationAtTick(1, endOfOperation);
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        allRunning.countDown();
+                        // wait a little for the other operations, if they run concurrently
+                        allRunning.await(100, TimeUnit.MILLISECONDS);
+                        running.decrementAndGet();
+                    } catch (final InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        endOfOperation.complete(null);
+                        fastClock.unregisterActor();
+                    }
+                }));
+            }
+            Assertions.assertTimeoutPreemptively(StandardSimulationClockTest.TIMEOUT, () -> {
+                fastClock.advance(3);
+                CompletableFuture.allOf(ends.toArray(new CompletableFuture[0])).join();
+            });
+            return maxRunning.get();
+        } finally {
+            fastSimulation.stop();
+        }
+    }
+
+    private static Simulation buildFastForwardSimulation() {
+        final SimulationBuilder builder = new SimulationBuilder();
+        builder.setClockMode(ClockMode.FAST_FORWARD);
+        builder.setHeadless(true);
+        builder.buildSimulation();
+        return builder.getBuiltSimulation();
+    }
+
+    private static class TestEntity extends BasicEntity {
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+
+
+/**
+ * Test class for the {@link ActionConsoleWriter}
+ *
+ * @author Tim Neumann
+ */
+class ActionConsoleWriterTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Test that an action whose description throws is printed as a placeholder and the actions after it are still
+     * printed.
+     */
+    @Test
+    public void testThrowingDescription() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            final ActionConsoleWriter writer = new ActionConsoleWriter();
+            writer.write(List.of(new TestAction("first")));
+            writer.write(List.of(new TestAction(null)));
+            writer.write(List.of(new TestAction("last")));
+            Assertions.assertTimeoutPreemptively(ActionConsoleWriterTest.TIMEOUT, writer::close);
+        } finally {
+            System.setOut(out);
+        }
+        final String output = bytes.toString(StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.contains("first"));
+        Assertions.assertTrue(output.contains("Could not print 1 actions: java.lang.IllegalStateException"));
+        Assertions.assertTrue(output.contains("last"));
+    }
+
+    /**
+     * Test that closing a writer twice returns immediately and later actions are ignored.
+     */
+    @Test
+    public void testCloseTwice() {
+        final ActionConsoleWriter writer = new ActionConsoleWriter();
+        writer.write(List.of(new TestAction("test")));
+        Assertions.assertTimeoutPreemptively(ActionConsoleWriterTest.TIMEOUT, () -> {
+            writer.close();
+            writer.close();
+            writer.write(List.of(new TestAction("ignored")));
+        });
+    }
+
+    private static class TestAction extends Action {
+        private final String description;
+
+        private TestAction(final String description) {
+            super(0);
+            this.description = description;
+        }
+
+        @Override
+        public String getDescription() {
+            if (this.description == null) throw new IllegalStateException("No description.");
+            return this.description;
+        }
+    }
+}
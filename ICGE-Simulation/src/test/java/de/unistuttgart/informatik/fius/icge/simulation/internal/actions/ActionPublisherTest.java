@@ -0,0 +1,208 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityMoveAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityStepAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTurnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+
+
+/**
+ * Test class for the {@link ActionPublisher}
+ *
+ * @author Tim Neumann
+ */
+class ActionPublisherTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private ActionStore     store;
+    private ActionPublisher publisher;
+
+    /**
+     * Create a publisher for a new store.
+     */
+    @BeforeEach
+    public void setup() {
+        this.store = new ActionStore();
+        this.publisher = new ActionPublisher(this.store);
+    }
+
+    /**
+     * Test that a subscriber which does not request anything neither blocks logging nor the other subscribers and
+     * receives all ticks in order when it requests them later.
+     */
+    @Test
+    public void testSlowSubscriber() {
+        final TestSubscriber slow = new TestSubscriber(0);
+        final TestSubscriber fast = new TestSubscriber(Long.MAX_VALUE);
+        this.publisher.subscribe(null, Action.class, true, slow);
+        this.publisher.subscribe(null, Action.class, true, fast);
+        Assertions.assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> {
+            for (int tick = 0; tick < 1000; tick++) {
+                this.log(tick);
+                this.log(tick);
+                this.publisher.endTick();
+            }
+            this.publisher.close();
+            fast.completed.join();
+        });
+        Assertions.assertEquals(1000, fast.batches.size());
+        Assertions.assertTrue(slow.batches.isEmpty());
+        Assertions.assertFalse(slow.completed.isDone());
+
+        slow.subscription.join().request(Long.MAX_VALUE);
+        Assertions.assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> slow.completed.join());
+        Assertions.assertEquals(1000, slow.batches.size());
+        for (int tick = 0; tick < 1000; tick++) {
+            final List<Action> batch = slow.batches.get(tick);
+            Assertions.assertEquals(2, batch.size());
+            Assertions.assertEquals(tick, batch.get(0).getTickNumber());
+            Assertions.assertEquals(tick, batch.get(1).getTickNumber());
+        }
+        Assertions.assertEquals(0, this.publisher.getSubscriptionCount());
+    }
+
+    /**
+     * Test that a cancelled subscriber receives nothing afterwards and is removed.
+     */
+    @Test
+    public void testCancel() {
+        final TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        this.publisher.subscribe(null, Action.class, true, subscriber);
+        final Flow.Subscription subscription = Assertions
+                .assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> subscriber.subscription.join());
+        this.log(0);
+        this.publisher.endTick();
+        Assertions.assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> {
+            while (subscriber.batches.isEmpty()) {
+                Thread.sleep(1);
+            }
+        });
+        subscription.cancel();
+        Assertions.assertEquals(0, this.publisher.getSubscriptionCount());
+        final TestSubscriber other = new TestSubscriber(Long.MAX_VALUE);
+        this.publisher.subscribe(null, Action.class, true, other);
+        this.log(1);
+        this.publisher.endTick();
+        this.publisher.close();
+        Assertions.assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> other.completed.join());
+        Assertions.assertEquals(1, other.batches.size());
+        Assertions.assertEquals(1, subscriber.batches.size());
+        Assertions.assertFalse(subscriber.completed.isDone());
+    }
+
+    /**
+     * Test that the subscriptions only receive the actions matching their type and entity, in one list per tick which
+     * contains a matching action.
+     */
+    @Test
+    public void testFilters() {
+        final TestEntity turning = new TestEntity();
+        final TestEntity stepping = new TestEntity();
+        final TestSubscriber turnsOfEntity = new TestSubscriber(Long.MAX_VALUE);
+        final TestSubscriber moves = new TestSubscriber(Long.MAX_VALUE);
+        final TestSubscriber ofOtherEntity = new TestSubscriber(Long.MAX_VALUE);
+        this.publisher.subscribe(turning, EntityTurnAction.class, false, turnsOfEntity);
+        this.publisher.subscribe(null, EntityMoveAction.class, true, moves);
+        this.publisher.subscribe(new TestEntity(), Action.class, true, ofOtherEntity);
+        Assertions.assertTimeoutPreemptively(ActionPublisherTest.TIMEOUT, () -> {
+            for (int tick = 0; tick < 10; tick++) {
+                this.publisher.append(new EntityTurnAction(tick, turning, Direction.EAST, Direction.NORTH));
+                if ((tick % 2) == 0) {
+                    this.publisher.append(new EntityStepAction(tick, stepping, new Position(tick, 0), new Position(tick + 1, 0)));
+                    this.publisher.append(new EntityStepAction(tick, stepping, new Position(tick + 1, 0), new Position(tick + 2, 0)));
+                }
+                this.publisher.endTick();
+            }
+            this.publisher.close();
+            turnsOfEntity.completed.join();
+            moves.completed.join();
+            ofOtherEntity.completed.join();
+        });
+        Assertions.assertEquals(10, turnsOfEntity.batches.size());
+        for (final List<Action> batch : turnsOfEntity.batches) {
+            Assertions.assertEquals(1, batch.size());
+            Assertions.assertSame(turning, ((EntityTurnAction) batch.get(0)).getEntity());
+        }
+        Assertions.assertEquals(5, moves.batches.size());
+        for (int i = 0; i < moves.batches.size(); i++) {
+            final List<Action> batch = moves.batches.get(i);
+            Assertions.assertEquals(2, batch.size());
+            Assertions.assertEquals(2 * i, batch.get(0).getTickNumber());
+            Assertions.assertEquals(EntityStepAction.class, batch.get(1).getClass());
+        }
+        Assertions.assertTrue(ofOtherEntity.batches.isEmpty());
+    }
+
+    private void log(final long tick) {
+        final Action action = new EntityTurnAction(tick, null, Direction.EAST, Direction.NORTH);
+        this.publisher.append(action);
+    }
+
+    private static class TestEntity extends BasicEntity {
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<List<Action>> {
+        private final long                                 initialRequest;
+        private final List<List<Action>>                   batches      = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+        private final CompletableFuture<Void>              completed    = new CompletableFuture<>();
+
+        private TestSubscriber(final long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription newSubscription) {
+            this.subscription.complete(newSubscription);
+            if (this.initialRequest > 0) {
+                newSubscription.request(this.initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(final List<Action> item) {
+            this.batches.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.completed.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed.complete(null);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test class for the {@link ActionSpillFile}
+ *
+ * @author Tim Neumann
+ */
+class ActionSpillFileTest {
+
+    /**
+     * Test that the chunks of more than one mapped region are read back with the values they were written with and that
+     * the returned buffers are read-only.
+     *
+     * @throws IOException
+     *     if the spill file cannot be written
+     */
+    @Test
+    public void testAppendAcrossRegions() throws IOException {
+        final ActionSpillFile file = new ActionSpillFile();
+        try {
+            final int chunkCount = ActionSpillFile.REGION_CHUNKS + 2;
+            final List<ByteBuffer> buffers = new ArrayList<>(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                final long[] longs = new long[ActionStore.CHUNK_SIZE];
+                final int[] ints = new int[ActionStore.CHUNK_SIZE];
+                Arrays.fill(longs, chunk);
+                Arrays.fill(ints, -chunk);
+                longs[ActionStore.CHUNK_SIZE - 1] = Long.MAX_VALUE - chunk;
+                buffers.add(file.append(longs, ints, ints, longs, longs, ints));
+            }
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                final ByteBuffer buffer = buffers.get(chunk);
+                Assertions.assertTrue(buffer.isReadOnly());
+                Assertions.assertEquals(ActionSpillFile.CHUNK_BYTES, buffer.capacity());
+                Assertions.assertEquals(chunk, buffer.getLong(ActionSpillFile.TICK_OFFSET));
+                Assertions.assertEquals(Long.MAX_VALUE - chunk, buffer.getLong(ActionSpillFile.TYPE_OFFSET - Long.BYTES));
+                Assertions.assertEquals(-chunk, buffer.getInt(ActionSpillFile.TYPE_OFFSET));
+                Assertions.assertEquals(-chunk, buffer.getInt(ActionSpillFile.ENTITY_OFFSET));
+                Assertions.assertEquals(chunk, buffer.getLong(ActionSpillFile.FROM_OFFSET));
+                Assertions.assertEquals(chunk, buffer.getLong(ActionSpillFile.TO_OFFSET));
+                Assertions.assertEquals(-chunk, buffer.getInt(ActionSpillFile.CHUNK_BYTES - Integer.BYTES));
+            }
+        } finally {
+            file.close();
+        }
+    }
+}
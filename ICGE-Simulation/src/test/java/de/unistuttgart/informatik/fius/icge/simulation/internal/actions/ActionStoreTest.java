@@ -0,0 +1,265 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.actions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Direction;
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.Action;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityCollectAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDespawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityDropAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityMoveAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntitySpawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityStepAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTurnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.CollectableEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.internal.playfield.StandardPlayfield;
+
+
+/**
+ * Test class for the {@link ActionStore}
+ *
+ * @author Tim Neumann
+ */
+class ActionStoreTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /** The number of different actions created by {@link #createAction(int)} */
+    private static final int KINDS = 9;
+
+    private final Playfield        playfield = new StandardPlayfield();
+    private final List<TestEntity> entities  = List.of(new TestEntity(), new TestEntity(), new TestEntity());
+    private final TestItem         item      = new TestItem();
+
+    private ActionStore store;
+
+    /**
+     * Close the store of the test.
+     */
+    @AfterEach
+    public void tearDown() {
+        if (this.store != null) {
+            this.store.close();
+        }
+    }
+
+    /**
+     * Test that every kind of action is read back with the same values and found by the type and entity queries.
+     */
+    @Test
+    public void testRoundTrip() {
+        this.store = new ActionStore();
+        final List<Action> expected = this.appendActions(10 * ActionStoreTest.KINDS);
+        this.assertStoreContains(expected);
+    }
+
+    /**
+     * Test that actions which were moved to the spill file are read back with the same values and are still found by
+     * the type and entity queries.
+     */
+    @Test
+    public void testRoundTripOfSpilledChunks() {
+        this.store = new ActionStore(0, ActionStore.CHUNK_SIZE);
+        final List<Action> expected = this.appendActions((5 * ActionStore.CHUNK_SIZE) + 17);
+        // the first four chunks are followed by at least one chunk of rows
+        this.awaitSpilledRows(4 * ActionStore.CHUNK_SIZE);
+        this.assertStoreContains(expected);
+    }
+
+    /**
+     * Test that reading a spilled action fails with an exception naming its row after the store was closed, also
+     * through a list returned before, while the actions on the heap can still be read.
+     */
+    @Test
+    public void testReadAfterClose() {
+        this.store = new ActionStore(0, ActionStore.CHUNK_SIZE);
+        final List<Action> expected = this.appendActions((2 * ActionStore.CHUNK_SIZE) + 1);
+        this.awaitSpilledRows(ActionStore.CHUNK_SIZE);
+        final List<Action> all = this.store.getAll();
+        this.store.close();
+        final IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> all.get(1));
+        Assertions.assertTrue(e.getMessage().contains("row 1 "));
+        Assertions.assertThrows(IllegalStateException.class, () -> this.store.get(0));
+        final int firstHeapRow = this.store.getFirstHeapRow();
+        for (int row = firstHeapRow; row < expected.size(); row++) {
+            ActionStoreTest.assertSameAction(expected.get(row), all.get(row));
+        }
+    }
+
+    private List<Action> appendActions(final int count) {
+        final List<Action> appended = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Action action = this.createAction(i);
+            Assertions.assertEquals(i, this.store.append(action));
+            appended.add(action);
+        }
+        return appended;
+    }
+
+    /**
+     * Create an action of the kind {@code i % KINDS}, which uses a different encoding for every kind.
+     */
+    private Action createAction(final int i) {
+        final long tick = i / 3;
+        final TestEntity entity = this.entities.get(i % this.entities.size());
+        final Position from = new Position(i, -i);
+        final Position to = new Position(-i - 1, Integer.MAX_VALUE - i);
+        switch (i % ActionStoreTest.KINDS) {
+            case 0:
+                return new EntityStepAction(tick, entity, from, to);
+            case 1:
+                return new EntityTeleportAction(tick, entity, from, to);
+            case 2:
+                return new EntityTurnAction(tick, entity, Direction.values()[i % 4], Direction.values()[(i + 1) % 4]);
+            case 3:
+                return new EntitySpawnAction(tick, entity, this.playfield, to);
+            case 4:
+                return new EntityDespawnAction(tick, entity, this.playfield);
+            case 5:
+                return new EntityCollectAction(tick, entity, this.item, from, to);
+            case 6:
+                return new EntityDropAction(tick, entity, this.item, from, to);
+            case 7:
+                // misses a position, so it is kept as object
+                return new EntityStepAction(tick, entity, from, null);
+            default:
+                return new TestAction(tick);
+        }
+    }
+
+    private void awaitSpilledRows(final int rows) {
+        Assertions.assertTimeoutPreemptively(ActionStoreTest.TIMEOUT, () -> {
+            while (this.store.getFirstHeapRow() < rows) {
+                Thread.sleep(1);
+            }
+        });
+    }
+
+    private void assertStoreContains(final List<Action> expected) {
+        Assertions.assertEquals(expected.size(), this.store.size());
+        for (int row = 0; row < expected.size(); row++) {
+            ActionStoreTest.assertSameAction(expected.get(row), this.store.get(row));
+        }
+        ActionStoreTest.assertSameActions(expected, this.store.getAll());
+        ActionStoreTest.assertSameActions(expected.subList(5, expected.size()), this.store.getSince(5));
+
+        final List<Action> moves = new ArrayList<>();
+        final List<Action> steps = new ArrayList<>();
+        for (final Action action : expected) {
+            if (action instanceof EntityMoveAction) {
+                moves.add(action);
+            }
+            if (action.getClass() == EntityStepAction.class) {
+                steps.add(action);
+            }
+        }
+        ActionStoreTest.assertSameActions(moves, this.store.getOfType(EntityMoveAction.class, true));
+        ActionStoreTest.assertSameActions(steps, this.store.getOfType(EntityStepAction.class, false));
+        Assertions.assertEquals(moves.size(), this.store.countOfType(EntityMoveAction.class, true));
+        Assertions.assertEquals(steps.size(), this.store.countOfType(EntityStepAction.class, false));
+        Assertions.assertTrue(this.store.getOfType(EntityMoveAction.class, false).isEmpty());
+
+        for (final TestEntity entity : this.entities) {
+            final List<Action> ofEntity = new ArrayList<>();
+            final List<Action> stepsOfEntity = new ArrayList<>();
+            for (final Action action : expected) {
+                if ((action instanceof EntityAction) && (((EntityAction) action).getEntity() == entity)) {
+                    ofEntity.add(action);
+                    if (action.getClass() == EntityStepAction.class) {
+                        stepsOfEntity.add(action);
+                    }
+                }
+            }
+            ActionStoreTest.assertSameActions(ofEntity, this.store.getOfTypeOfEntity(entity, EntityAction.class, true));
+            ActionStoreTest.assertSameActions(stepsOfEntity, this.store.getOfTypeOfEntity(entity, EntityStepAction.class, false));
+            Assertions.assertEquals(ofEntity.size(), this.store.countOfEntity(entity));
+            Assertions.assertEquals(stepsOfEntity.size(), this.store.countOfTypeOfEntity(entity, EntityStepAction.class, false));
+        }
+    }
+
+    private static void assertSameActions(final List<? extends Action> expected, final List<? extends Action> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ActionStoreTest.assertSameAction(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertSameAction(final Action expected, final Action actual) {
+        Assertions.assertEquals(expected.getClass(), actual.getClass());
+        Assertions.assertEquals(expected.getTickNumber(), actual.getTickNumber());
+        if (expected instanceof EntityAction) {
+            Assertions.assertSame(((EntityAction) expected).getEntity(), ((EntityAction) actual).getEntity());
+        }
+        if (expected instanceof EntityMoveAction) {
+            Assertions.assertEquals(((EntityMoveAction) expected).from(), ((EntityMoveAction) actual).from());
+            Assertions.assertEquals(((EntityMoveAction) expected).to(), ((EntityMoveAction) actual).to());
+        } else if (expected instanceof EntityTurnAction) {
+            Assertions.assertEquals(((EntityTurnAction) expected).from(), ((EntityTurnAction) actual).from());
+            Assertions.assertEquals(((EntityTurnAction) expected).to(), ((EntityTurnAction) actual).to());
+        } else if (expected instanceof EntitySpawnAction) {
+            Assertions.assertSame(((EntitySpawnAction) expected).getPlayfield(), ((EntitySpawnAction) actual).getPlayfield());
+            Assertions.assertEquals(((EntitySpawnAction) expected).getPosition(), ((EntitySpawnAction) actual).getPosition());
+        } else if (expected instanceof EntityDespawnAction) {
+            Assertions.assertSame(((EntityDespawnAction) expected).getPlayfield(), ((EntityDespawnAction) actual).getPlayfield());
+        } else if (expected instanceof EntityCollectAction) {
+            final EntityCollectAction collect = (EntityCollectAction) actual;
+            Assertions.assertSame(((EntityCollectAction) expected).getCollectedEntity(), collect.getCollectedEntity());
+            Assertions.assertEquals(((EntityCollectAction) expected).getCollectorPosition(), collect.getCollectorPosition());
+            Assertions.assertEquals(((EntityCollectAction) expected).getCollectedEntityPosition(), collect.getCollectedEntityPosition());
+        } else if (expected instanceof EntityDropAction) {
+            final EntityDropAction drop = (EntityDropAction) actual;
+            Assertions.assertSame(((EntityDropAction) expected).getDroppedEntity(), drop.getDroppedEntity());
+            Assertions.assertEquals(((EntityDropAction) expected).getDropperPosition(), drop.getDropperPosition());
+            Assertions.assertEquals(((EntityDropAction) expected).getDroppedEntityPosition(), drop.getDroppedEntityPosition());
+        } else {
+            // kept as object
+            Assertions.assertSame(expected, actual);
+        }
+    }
+
+    private static class TestAction extends Action {
+        private TestAction(final long tickNumber) {
+            super(tickNumber);
+        }
+
+        @Override
+        public String getDescription() {
+            return "Test action";
+        }
+    }
+
+    private static class TestEntity extends BasicEntity {
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+
+    private static class TestItem extends TestEntity implements CollectableEntity {
+        // only used to have a collectable entity
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+
+
+/**
+ * Test class for the {@link EntityTypeIndex}
+ *
+ * @author Tim Neumann
+ */
+class EntityTypeIndexTest {
+
+    /**
+     * Test that queries with and without subclasses return the matching entities in insertion order per class.
+     */
+    @Test
+    public void testGet() {
+        final EntityTypeIndex index = new EntityTypeIndex();
+        final TestEntity first = new TestEntity();
+        final SubEntity sub = new SubEntity();
+        final TestEntity second = new TestEntity();
+        index.add(first);
+        index.add(sub);
+        index.add(second);
+
+        Assertions.assertEquals(List.of(first, second), index.get(TestEntity.class, false));
+        Assertions.assertEquals(List.of(sub), index.get(SubEntity.class, false));
+        Assertions.assertEquals(List.of(sub), index.get(SubEntity.class, true));
+        Assertions.assertEquals(Set.of(first, sub, second), Set.copyOf(index.get(TestEntity.class, true)));
+        Assertions.assertEquals(3, index.get(Entity.class, true).size());
+        Assertions.assertTrue(index.get(Entity.class, false).isEmpty());
+    }
+
+    /**
+     * Test that the cached groups of a type include the classes added after the first query and that removed entities
+     * are no longer returned.
+     */
+    @Test
+    public void testAddAndRemoveAfterQuery() {
+        final EntityTypeIndex index = new EntityTypeIndex();
+        final TestEntity entity = new TestEntity();
+        index.add(entity);
+        Assertions.assertEquals(List.of(entity), index.get(TestEntity.class, true));
+
+        final SubEntity sub = new SubEntity();
+        index.add(sub);
+        Assertions.assertEquals(Set.of(entity, sub), Set.copyOf(index.get(TestEntity.class, true)));
+
+        Assertions.assertTrue(index.remove(sub));
+        Assertions.assertFalse(index.remove(sub));
+        Assertions.assertEquals(List.of(entity), index.get(TestEntity.class, true));
+        Assertions.assertTrue(index.get(SubEntity.class, true).isEmpty());
+
+        index.add(sub);
+        Assertions.assertEquals(List.of(sub), index.get(SubEntity.class, false));
+        Assertions.assertFalse(index.remove(new OtherEntity()));
+    }
+
+    /**
+     * Test that a returned list is a copy, which is not changed by later changes of the index.
+     */
+    @Test
+    public void testResultIsCopy() {
+        final EntityTypeIndex index = new EntityTypeIndex();
+        final TestEntity entity = new TestEntity();
+        index.add(entity);
+        final List<TestEntity> result = index.get(TestEntity.class, true);
+        index.remove(entity);
+        Assertions.assertEquals(List.of(entity), result);
+        result.clear();
+        index.add(entity);
+        Assertions.assertEquals(List.of(entity), index.get(TestEntity.class, true));
+    }
+
+    private static class TestEntity extends BasicEntity {
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+
+    private static class SubEntity extends TestEntity {
+        // only used to have a subclass
+    }
+
+    private static class OtherEntity extends TestEntity {
+        // only used to have a class which was never added
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test class for the {@link PackedPositionMap}
+ *
+ * @author Tim Neumann
+ */
+class PackedPositionMapTest {
+
+    /**
+     * Test that packing and unpacking a position keeps both coordinates, including negative and extreme ones.
+     */
+    @Test
+    public void testPackUnpack() {
+        final int[] values = { 0, 1, -1, 42, -42, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for (final int x : values) {
+            for (final int y : values) {
+                final long key = PackedPositionMap.pack(x, y);
+                Assertions.assertEquals(x, PackedPositionMap.unpackX(key));
+                Assertions.assertEquals(y, PackedPositionMap.unpackY(key));
+            }
+        }
+        Assertions.assertNotEquals(PackedPositionMap.pack(1, 2), PackedPositionMap.pack(2, 1));
+    }
+
+    /**
+     * Test that random puts and removes on a small area, which cause collisions, resizes and backward shifts, leave the
+     * map with the same content as a {@link HashMap}.
+     */
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        final Random random = new Random(4711);
+        final PackedPositionMap<Integer> map = new PackedPositionMap<>();
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            final long key = PackedPositionMap.pack(random.nextInt(40) - 20, random.nextInt(40) - 20);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            Assertions.assertEquals(expected.size(), map.size());
+            if ((i % 1000) == 0) {
+                PackedPositionMapTest.assertSameContent(expected, map);
+            }
+        }
+        PackedPositionMapTest.assertSameContent(expected, map);
+    }
+
+    /**
+     * Test that removing keys from the middle of a run of colliding keys keeps the keys after it reachable.
+     */
+    @Test
+    public void testRemoveKeepsLaterKeysReachable() {
+        final PackedPositionMap<String> map = new PackedPositionMap<>();
+        final List<Long> keys = new ArrayList<>();
+        for (int x = 0; x < 30; x++) {
+            final long key = PackedPositionMap.pack(x, 0);
+            keys.add(key);
+            map.put(key, "x" + x);
+        }
+        for (int i = 0; i < (keys.size() - 1); i++) {
+            Assertions.assertEquals("x" + i, map.remove(keys.get(i)));
+            Assertions.assertNull(map.get(keys.get(i)));
+            for (int j = i + 1; j < keys.size(); j++) {
+                Assertions.assertEquals("x" + j, map.get(keys.get(j)));
+                Assertions.assertEquals("x" + j, map.getOptimistic(keys.get(j)));
+            }
+        }
+        Assertions.assertEquals(1, map.size());
+        Assertions.assertEquals("x29", map.get(29, 0));
+        Assertions.assertNull(map.remove(keys.get(0)));
+        map.clear();
+        Assertions.assertEquals(0, map.size());
+        Assertions.assertNull(map.get(29, 0));
+    }
+
+    /**
+     * Test that null values are rejected.
+     */
+    @Test
+    public void testPutNull() {
+        final PackedPositionMap<String> map = new PackedPositionMap<>();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(PackedPositionMap.pack(0, 0), null));
+        Assertions.assertEquals(0, map.size());
+    }
+
+    private static void assertSameContent(final Map<Long, Integer> expected, final PackedPositionMap<Integer> map) {
+        expected.forEach((key, value) -> {
+            Assertions.assertEquals(value, map.get(key));
+            Assertions.assertEquals(value, map.get(PackedPositionMap.unpackX(key), PackedPositionMap.unpackY(key)));
+        });
+        final List<Integer> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        values.sort(null);
+        final List<Integer> expectedValues = new ArrayList<>(expected.values());
+        expectedValues.sort(null);
+        Assertions.assertEquals(expectedValues, values);
+    }
+}
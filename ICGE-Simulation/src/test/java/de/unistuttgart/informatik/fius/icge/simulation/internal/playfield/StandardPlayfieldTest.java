@@ -0,0 +1,467 @@
+/*
+ * This source file is part of the FIUS ICGE project.
+ * For more information see github.com/FIUS/ICGE2
+ *
+ * Copyright (c) 2019 the ICGE project authors.
+ *
+ * This software is available under the MIT license.
+ * SPDX-License-Identifier:    MIT
+ */
+package de.unistuttgart.informatik.fius.icge.simulation.internal.playfield;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.unistuttgart.informatik.fius.icge.simulation.Playfield;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldBatch;
+import de.unistuttgart.informatik.fius.icge.simulation.PlayfieldSnapshot;
+import de.unistuttgart.informatik.fius.icge.simulation.Position;
+import de.unistuttgart.informatik.fius.icge.simulation.Simulation;
+import de.unistuttgart.informatik.fius.icge.simulation.SimulationBuilder;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntitySpawnAction;
+import de.unistuttgart.informatik.fius.icge.simulation.actions.EntityTeleportAction;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.BasicEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.CollectableEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.Entity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.EntityTypeRegistry;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.GreedyEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.entity.SolidEntity;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityAlreadyOnFieldExcpetion;
+import de.unistuttgart.informatik.fius.icge.simulation.exception.EntityNotOnFieldException;
+import de.unistuttgart.informatik.fius.icge.ui.Drawable;
+
+
+/**
+ * Test class for the {@link StandardPlayfield}
+ *
+ * @author Tim Neumann
+ */
+class StandardPlayfieldTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private Simulation simulation;
+    private Playfield  playfield;
+
+    /**
+     * Build a headless simulation.
+     */
+    @BeforeEach
+    public void setup() {
+        final SimulationBuilder builder = new SimulationBuilder();
+        builder.setHeadless(true);
+        builder.buildSimulation();
+        this.simulation = builder.getBuiltSimulation();
+        this.playfield = this.simulation.getPlayfield();
+    }
+
+    /**
+     * Stop the simulation.
+     */
+    @AfterEach
+    public void tearDown() {
+        this.simulation.stop();
+    }
+
+    /**
+     * Test that an entity which is already on the playfield is not initialized again.
+     */
+    @Test
+    public void testAddEntityTwiceDoesNotInitializeAgain() {
+        final TestEntity entity = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), entity);
+        Assertions.assertThrows(EntityAlreadyOnFieldExcpetion.class, () -> this.playfield.addEntity(new Position(1, 1), entity));
+        Assertions.assertEquals(1, entity.initializations.get());
+        Assertions.assertEquals(new Position(0, 0), entity.getPosition());
+    }
+
+    /**
+     * Test that an entity may query the playfield while it is initialized to be added, alone and in a batch.
+     */
+    @Test
+    public void testInitializedEntityCanQueryPlayfield() {
+        final TestEntity present = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), present);
+        final QueryingEntity entity = new QueryingEntity();
+        Assertions.assertTimeoutPreemptively(StandardPlayfieldTest.TIMEOUT, () -> this.playfield.addEntity(new Position(1, 0), entity));
+        Assertions.assertEquals(List.of(present), entity.seenEntities);
+        Assertions.assertEquals(new Position(1, 0), entity.getPosition());
+
+        final QueryingEntity batchEntity = new QueryingEntity();
+        final PlayfieldBatch batch = new PlayfieldBatch();
+        batch.addEntity(new Position(2, 0), batchEntity);
+        batch.moveEntity(present, new Position(3, 0));
+        Assertions.assertTimeoutPreemptively(StandardPlayfieldTest.TIMEOUT, () -> this.playfield.applyBatch(batch));
+        Assertions.assertEquals(2, batchEntity.seenEntities.size());
+        Assertions.assertEquals(new Position(2, 0), batchEntity.getPosition());
+        Assertions.assertEquals(new Position(3, 0), present.getPosition());
+
+        // an entity which is being initialized can not be added a second time
+        final QueryingEntity twice = new QueryingEntity();
+        twice.onInit = () -> Assertions
+                .assertThrows(EntityAlreadyOnFieldExcpetion.class, () -> this.playfield.addEntity(new Position(5, 0), twice));
+        this.playfield.addEntity(new Position(4, 0), twice);
+        Assertions.assertEquals(new Position(4, 0), twice.getPosition());
+        Assertions.assertEquals(1, ((TestEntity) twice).initializations.get());
+    }
+
+    /**
+     * Test that the action run for the entities of a region may modify the playfield.
+     */
+    @Test
+    public void testRegionActionCanModifyPlayfield() {
+        final TestEntity moved = new TestEntity();
+        final TestEntity removed = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), moved);
+        this.playfield.addEntity(new Position(1, 1), removed);
+        final TestEntity added = new TestEntity();
+        Assertions.assertTimeoutPreemptively(StandardPlayfieldTest.TIMEOUT, () -> {
+            this.playfield.forEachEntityInRegion(0, 0, 1, 1, entity -> {
+                if (entity == moved) {
+                    // far away, so the entity is moved into a new chunk
+                    this.playfield.moveEntity(entity, new Position(1000, 1000));
+                } else {
+                    this.playfield.removeEntity(entity);
+                    this.playfield.addEntity(new Position(0, 1), added);
+                }
+            });
+        });
+        Assertions.assertEquals(new Position(1000, 1000), moved.getPosition());
+        Assertions.assertFalse(this.playfield.containsEntity(removed));
+        Assertions.assertEquals(List.of(added), this.playfield.getEntitiesInRegion(1, 1, 0, 0));
+    }
+
+    /**
+     * Test that the spawn of an entity is logged before a concurrent move of it.
+     */
+    @Test
+    public void testSpawnIsLoggedBeforeMove() {
+        this.simulation.getActionLog().setConsoleOutput(false);
+        for (int i = 0; i < 200; i++) {
+            final TestEntity entity = new TestEntity();
+            final Position target = new Position(i, 1);
+            final CompletableFuture<Void> mover = CompletableFuture.runAsync(() -> {
+                while (true) {
+                    try {
+                        this.playfield.moveEntity(entity, target);
+                        return;
+                    } catch (@SuppressWarnings("unused") final EntityNotOnFieldException e) {
+                        // not added yet
+                    }
+                }
+            });
+            this.playfield.addEntity(new Position(i, 0), entity);
+            mover.join();
+            final List<EntityAction> actions = this.simulation.getActionLog().getAllActionsOfEntity(entity);
+            Assertions.assertEquals(2, actions.size());
+            Assertions.assertTrue(actions.get(0) instanceof EntitySpawnAction);
+            Assertions.assertTrue(actions.get(1) instanceof EntityTeleportAction);
+        }
+    }
+
+    /**
+     * Test that an entity moved by a batch stays on the playfield for readers which do not lock.
+     */
+    @Test
+    public void testBatchMoveKeepsEntityOnPlayfield() {
+        final TestEntity entity = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), entity);
+        final AtomicBoolean done = new AtomicBoolean();
+        final CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                Assertions.assertTrue(entity.isOnPlayfield());
+                entity.getPosition();
+            }
+        });
+        try {
+            for (int i = 1; i <= 2000; i++) {
+                final PlayfieldBatch batch = new PlayfieldBatch();
+                // move across chunk borders, so chunks are created and released
+                batch.moveEntity(entity, new Position((i % 2) * 100, i));
+                this.playfield.applyBatch(batch);
+            }
+        } finally {
+            done.set(true);
+        }
+        reader.join();
+        Assertions.assertEquals(new Position(0, 2000), entity.getPosition());
+        Assertions.assertEquals(List.of(entity), this.playfield.getEntitiesAt(0, 2000));
+    }
+
+    /**
+     * Test that a batch moving an entity keeps the order of the entities of its type.
+     */
+    @Test
+    public void testBatchMoveKeepsTypeOrder() {
+        final TestEntity first = new TestEntity();
+        final TestEntity second = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), first);
+        this.playfield.addEntity(new Position(1, 0), second);
+        final PlayfieldBatch batch = new PlayfieldBatch();
+        batch.moveEntity(first, new Position(5, 5));
+        this.playfield.applyBatch(batch);
+        Assertions.assertEquals(List.of(first, second), this.playfield.getAllEntitiesOfType(TestEntity.class, false));
+    }
+
+    /**
+     * Test that no entity of an invalid batch is initialized.
+     */
+    @Test
+    public void testInvalidBatchDoesNotInitializeEntities() {
+        final TestEntity present = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), present);
+        final TestEntity added = new TestEntity();
+        final PlayfieldBatch batch = new PlayfieldBatch();
+        batch.addEntity(new Position(1, 1), added);
+        batch.addEntity(new Position(2, 2), present);
+        Assertions.assertThrows(EntityAlreadyOnFieldExcpetion.class, () -> this.playfield.applyBatch(batch));
+        Assertions.assertEquals(0, added.initializations.get());
+        Assertions.assertFalse(this.playfield.containsEntity(added));
+        Assertions.assertEquals(new Position(0, 0), present.getPosition());
+    }
+
+    /**
+     * Test that a batch which fails at a later operation leaves the playfield and the action log unchanged, even though
+     * its earlier operations were valid.
+     */
+    @Test
+    public void testInvalidBatchIsNotApplied() {
+        this.simulation.getActionLog().setConsoleOutput(false);
+        final TestEntity moved = new TestEntity();
+        final TestEntity removed = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), moved);
+        this.playfield.addEntity(new Position(1, 1), removed);
+        final TestEntity added = new TestEntity();
+        final PlayfieldBatch batch = new PlayfieldBatch();
+        batch.moveEntity(moved, new Position(5, 5));
+        batch.removeEntity(removed);
+        batch.addEntity(new Position(2, 2), added);
+        batch.removeEntity(new TestEntity());
+        Assertions.assertThrows(EntityNotOnFieldException.class, () -> this.playfield.applyBatch(batch));
+
+        Assertions.assertEquals(new Position(0, 0), this.playfield.getEntityPosition(moved));
+        Assertions.assertEquals(new Position(1, 1), this.playfield.getEntityPosition(removed));
+        Assertions.assertFalse(this.playfield.containsEntity(added));
+        Assertions.assertEquals(2, this.playfield.getAllEntities().size());
+        Assertions.assertEquals(List.of(moved), this.playfield.getEntitiesAt(new Position(0, 0)));
+        Assertions.assertTrue(this.playfield.getEntitiesAt(new Position(5, 5)).isEmpty());
+        Assertions.assertEquals(1, this.simulation.getActionLog().getAllActionsOfEntity(moved).size());
+        Assertions.assertEquals(1, this.simulation.getActionLog().getAllActionsOfEntity(removed).size());
+        Assertions.assertTrue(this.simulation.getActionLog().getAllActionsOfEntity(added).isEmpty());
+    }
+
+    /**
+     * Test that restoring a saved state replaces the entities on the playfield by new entities of the same types at the
+     * same positions and with the same state.
+     *
+     * @throws IOException
+     *     if the temporary file cannot be written
+     */
+    @Test
+    public void testSaveAndRestoreState() throws IOException {
+        this.simulation.getActionLog().setConsoleOutput(false);
+        final EntityTypeRegistry registry = this.simulation.getEntityTypeRegistry();
+        registry.registerEntityType("test", "test", TestEntity::new);
+        registry.registerEntityType("collector", "test", TestCollector::new);
+        registry.registerEntityType("item", "test", TestItem::new);
+
+        final TestEntity entity = new TestEntity();
+        final TestCollector collector = new TestCollector();
+        collector.getInventory().add(new TestItem());
+        collector.getInventory().add(new TestItem());
+        this.playfield.addEntity(new Position(1, 2), entity);
+        this.playfield.addEntity(new Position(-3, 4), collector);
+
+        final Path file = Files.createTempFile("playfield", ".state");
+        try {
+            this.playfield.saveState(file);
+            this.playfield.moveEntity(entity, new Position(7, 7));
+            final TestEntity later = new TestEntity();
+            this.playfield.addEntity(new Position(8, 8), later);
+
+            this.playfield.restoreState(file);
+            Assertions.assertFalse(this.playfield.containsEntity(entity));
+            Assertions.assertFalse(this.playfield.containsEntity(collector));
+            Assertions.assertFalse(this.playfield.containsEntity(later));
+            Assertions.assertEquals(2, this.playfield.getAllEntities().size());
+
+            final List<TestEntity> entities = this.playfield.getAllEntitiesOfType(TestEntity.class, false);
+            Assertions.assertEquals(1, entities.size());
+            Assertions.assertEquals(new Position(1, 2), entities.get(0).getPosition());
+            final List<TestCollector> collectors = this.playfield.getAllEntitiesOfType(TestCollector.class, false);
+            Assertions.assertEquals(1, collectors.size());
+            Assertions.assertEquals(new Position(-3, 4), collectors.get(0).getPosition());
+            Assertions.assertEquals(2, collectors.get(0).getInventory().get(TestItem.class, false).size());
+
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+            Assertions.assertThrows(IOException.class, () -> this.playfield.restoreState(file));
+            Assertions.assertEquals(2, this.playfield.getAllEntities().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test that restoring a state also removes an entity which was added while the restored entities were initialized.
+     *
+     * @throws IOException
+     *     if the temporary file cannot be written
+     */
+    @Test
+    public void testRestoreStateRemovesEntitiesAddedMeanwhile() throws IOException {
+        this.simulation.getActionLog().setConsoleOutput(false);
+        final TestEntity addedMeanwhile = new TestEntity();
+        this.simulation.getEntityTypeRegistry().registerEntityType("querying", "test", () -> {
+            final QueryingEntity restored = new QueryingEntity();
+            restored.onInit = () -> this.playfield.addEntity(new Position(9, 9), addedMeanwhile);
+            return restored;
+        });
+        final QueryingEntity saved = new QueryingEntity();
+        this.playfield.addEntity(new Position(1, 1), saved);
+
+        final Path file = Files.createTempFile("playfield", ".state");
+        try {
+            this.playfield.saveState(file);
+            Assertions.assertTimeoutPreemptively(StandardPlayfieldTest.TIMEOUT, () -> this.playfield.restoreState(file));
+        } finally {
+            Files.delete(file);
+        }
+        Assertions.assertFalse(this.playfield.containsEntity(saved));
+        Assertions.assertFalse(this.playfield.containsEntity(addedMeanwhile));
+        final List<Entity> entities = this.playfield.getAllEntities();
+        Assertions.assertEquals(1, entities.size());
+        Assertions.assertEquals(new Position(1, 1), entities.get(0).getPosition());
+    }
+
+    /**
+     * Test that the drawables of a snapshot do not change after it was taken.
+     */
+    @Test
+    public void testSnapshotDrawablesAreCaptured() {
+        final TestEntity entity = new TestEntity();
+        this.playfield.addEntity(new Position(1, 2), entity);
+        final PlayfieldSnapshot snapshot = this.playfield.getSnapshot();
+        this.playfield.moveEntity(entity, new Position(3, 4));
+        entity.textureHandle = "changed";
+        Assertions.assertEquals(1, snapshot.getDrawables().size());
+        final Drawable drawable = snapshot.getDrawables().get(0);
+        Assertions.assertEquals(1, drawable.getX());
+        Assertions.assertEquals(2, drawable.getY());
+        Assertions.assertEquals("test", drawable.getTextureHandle());
+        Assertions.assertEquals(new Position(1, 2), snapshot.getEntityPosition(entity));
+    }
+
+    /**
+     * Test that a draw request updates the drawables of the next snapshot even if no entity moved.
+     */
+    @Test
+    public void testDrawRequestUpdatesSnapshotDrawables() {
+        final TestEntity entity = new TestEntity();
+        this.playfield.addEntity(new Position(0, 0), entity);
+        final PlayfieldSnapshot before = this.playfield.getSnapshot();
+        Assertions.assertSame(before, this.playfield.getSnapshot());
+        entity.textureHandle = "changed";
+        ((StandardPlayfield) this.playfield).drawEntities();
+        final PlayfieldSnapshot after = this.playfield.getSnapshot();
+        Assertions.assertEquals("changed", after.getDrawables().get(0).getTextureHandle());
+        Assertions.assertEquals(before.getEntities(), after.getEntities());
+    }
+
+    /**
+     * Test that a change of the solidity of an entity is only seen by collision checks after it was reported.
+     */
+    @Test
+    public void testSolidityToggle() {
+        final ToggleEntity entity = new ToggleEntity();
+        this.playfield.addEntity(new Position(3, 3), entity);
+        Assertions.assertTrue(this.playfield.isSolidEntityAt(3, 3));
+        entity.solid = false;
+        Assertions.assertTrue(this.playfield.isSolidEntityAt(3, 3));
+        entity.setSolid(false);
+        Assertions.assertFalse(this.playfield.isSolidEntityAt(3, 3));
+        entity.setSolid(true);
+        Assertions.assertTrue(this.playfield.isSolidEntityAt(new Position(3, 3)));
+        this.playfield.moveEntity(entity, new Position(4, 3));
+        Assertions.assertFalse(this.playfield.isSolidEntityAt(3, 3));
+        Assertions.assertTrue(this.playfield.isSolidEntityAt(4, 3));
+        this.playfield.removeEntity(entity);
+        Assertions.assertFalse(this.playfield.isSolidEntityAt(4, 3));
+    }
+
+    private static class QueryingEntity extends TestEntity {
+        private volatile List<Entity> seenEntities;
+        private volatile Runnable     onInit = () -> {
+                                             };
+
+        @Override
+        public void initOnPlayfield(final Playfield playfield) {
+            super.initOnPlayfield(playfield);
+            Assertions.assertFalse(playfield.containsEntity(this));
+            Assertions.assertFalse(playfield.isSolidEntityAt(0, 0));
+            this.seenEntities = playfield.getAllEntities();
+            this.onInit.run();
+        }
+    }
+
+    private static class ToggleEntity extends TestEntity implements SolidEntity {
+        private volatile boolean solid = true;
+
+        private void setSolid(final boolean solid) {
+            this.solid = solid;
+            this.notifySolidityChanged();
+        }
+
+        @Override
+        public boolean isCurrentlySolid() {
+            return this.solid;
+        }
+    }
+
+    private static class TestCollector extends GreedyEntity {
+        @Override
+        protected String getTextureHandle() {
+            return "test";
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+
+    private static class TestItem extends TestEntity implements CollectableEntity {
+        // only used to have a collectable entity
+    }
+
+    private static class TestEntity extends BasicEntity {
+        private final AtomicInteger initializations = new AtomicInteger();
+        private volatile String     textureHandle   = "test";
+
+        @Override
+        public void initOnPlayfield(final Playfield playfield) {
+            this.initializations.incrementAndGet();
+            super.initOnPlayfield(playfield);
+        }
+
+        @Override
+        protected String getTextureHandle() {
+            return this.textureHandle;
+        }
+
+        @Override
+        protected int getZPosition() {
+            return 0;
+        }
+    }
+}
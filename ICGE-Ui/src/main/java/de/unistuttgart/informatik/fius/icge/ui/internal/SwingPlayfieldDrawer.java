@@ -18,6 +18,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import javax.swing.JPanel;
@@ -84,6 +85,8 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
     private Rectangle      lastRedrawArea    = null;
     private long           currentFrame      = 0;
 
+    private final AtomicBoolean frameQueued = new AtomicBoolean(false);
+
     // current graphic settings
     private final RepaintManager repaintManager;
     private boolean              useDoubleBuffer = true;
@@ -213,7 +216,10 @@ public class SwingPlayfieldDrawer extends JPanel implements PlayfieldDrawer {
             this.drawables = this.drawables.stream().sorted(Comparator.naturalOrder()).collect(Collectors.toUnmodifiableList());
         }
 
+        // coalesce frames: if a frame is still waiting for the event dispatch thread it will paint the latest state
+        if (!this.frameQueued.compareAndSet(false, true)) return;
         SwingUtilities.invokeLater(() -> {
+            this.frameQueued.set(false);
             // synchronize this to fix possible null pointer when setting double buffer setting
 
             final boolean bufferEnabled = this.repaintManager.isDoubleBufferingEnabled();